@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.snapshot.MappedSnapshot;
+import ru.yandex.practicum.filmorate.storage.snapshot.SnapshotWriter;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ColdStartBenchmark { //время от открытия снимка до первого ответа и до полной загрузки в кучу
+
+    @Param({"100000", "1000000"})
+    int catalogSize;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        List<Film> films = new ArrayList<>(catalogSize);
+        for (int i = 1; i <= catalogSize; i++) {
+            Film film = new Film();
+            film.setId((long) i);
+            film.setName("Фильм " + i);
+            film.setDescription("Описание фильма " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1).plusDays(i % 5000));
+            film.setDuration(90 + i % 60);
+            for (int like = random.nextInt(20); like > 0; like--) {
+                film.getLikes().add(1 + random.nextInt(catalogSize / 10));
+            }
+            films.add(film);
+        }
+        List<User> users = new ArrayList<>(catalogSize / 10);
+        for (int i = 1; i <= catalogSize / 10; i++) {
+            User user = new User();
+            user.setId((long) i);
+            user.setEmail("user" + i + "@example.com");
+            user.setLogin("user" + i);
+            user.setName("Пользователь " + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            users.add(user);
+        }
+        file = Files.createTempFile("cold-start", ".bin");
+        SnapshotWriter.write(file, films, users);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Film firstLookup() throws IOException { //готовность обслуживать findFilmById сразу после старта
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        MappedSnapshot snapshot = MappedSnapshot.open(file);
+        films.attachSnapshot(snapshot);
+        users.attachSnapshot(snapshot);
+        users.checkEmail("user1@example.com");
+        return films.findFilmById((long) catalogSize / 2);
+    }
+
+    @Benchmark
+    public long fullLoad() throws IOException { //перенос всего снимка в кучу, который идёт в фоне
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        MappedSnapshot snapshot = MappedSnapshot.open(file);
+        films.attachSnapshot(snapshot);
+        users.attachSnapshot(snapshot);
+        films.loadSnapshot();
+        users.loadSnapshot();
+        return films.count() + users.count();
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommonFriendsBenchmark { //GET /users/{id}/friends/common/{other-id}: половина друзей у пары общая
+
+    @Param({"100", "10000", "50000"})
+    int friendCount;
+
+    private UserService userService;
+    private long userId;
+    private long otherId;
+
+    @Setup
+    public void setUp() {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        userService = new UserService(storage);
+        userId = storage.create(newUser(0)).getId();
+        otherId = storage.create(newUser(1)).getId();
+        for (int i = 0; i < friendCount * 3 / 2; i++) {
+            long friendId = storage.create(newUser(i + 2)).getId();
+            if (i < friendCount) {
+                storage.putFriend(userId, friendId);
+            }
+            if (i >= friendCount / 2) {
+                storage.putFriend(otherId, friendId);
+            }
+        }
+    }
+
+    @Benchmark
+    public Collection<User> commonFriends() {
+        return userService.getCommonFriends(userId, otherId, 0L, null);
+    }
+
+    @Benchmark
+    public Collection<User> commonFriendsPage() {
+        return userService.getCommonFriends(userId, otherId, 0L, 100L);
+    }
+
+    private static User newUser(int number) {
+        User user = new User();
+        user.setEmail("user" + number + "@example.com");
+        user.setLogin("user" + number);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FriendSuggestionBenchmark { //GET /users/{id}/friends/suggestions: у пользователя userFriends друзей, среди остальных есть знаменитости
+
+    @Param({"200000"})
+    int userCount;
+
+    @Param({"100", "10000"})
+    int userFriends;
+
+    private UserService userService;
+    private long userId;
+
+    @Setup
+    public void setUp() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        userService = new UserService(userStorage);
+        List<User> users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@example.com");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(2000, 1, 1));
+            users.add(user);
+        }
+        userStorage.createAll(users);
+
+        // 10 дружб на пользователя в среднем, вторая сторона выбирается со смещением к первым id — они становятся знаменитостями
+        Random random = new Random(42);
+        List<Friendship> friendships = new ArrayList<>();
+        for (long user = 1; user <= userCount; user++) {
+            int count = user == userCount ? userFriends : 1 + random.nextInt(20);
+            for (int i = 0; i < count; i++) {
+                long friend = 1 + (long) (userCount * Math.pow(random.nextDouble(), 3));
+                if (friend != user) {
+                    friendships.add(new Friendship(user, friend));
+                }
+            }
+            if (friendships.size() > 100_000) {
+                userStorage.putFriends(friendships);
+                friendships.clear();
+            }
+        }
+        userStorage.putFriends(friendships);
+        userId = userCount; //последний id почти не выбирают второй стороной, поэтому его друзья — ровно userFriends
+    }
+
+    @Benchmark
+    public List<User> suggestions() {
+        return userService.getFriendSuggestions(userId, 10);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.yandex.practicum.filmorate.logging.LogSampling;
+import ru.yandex.practicum.filmorate.logging.SamplingTurboFilter;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingBenchmark { //журнал одного запроса: String.format и toString сущности против параметризованных сообщений
+
+    private static final Logger log = LoggerFactory.getLogger("ru.yandex.practicum.filmorate.benchmark.Logging");
+
+    // disabled — INFO выключен уровнем, sampledOut — INFO включён, но запрос не попал в выборку
+    @Param({"disabled", "sampledOut"})
+    String mode;
+
+    private Film film;
+    private Long filmId;
+    private Long userId;
+
+    @Setup
+    public void setUp() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.resetTurboFilterList();
+        ch.qos.logback.classic.Logger logger = context.getLogger(log.getName());
+        if (mode.equals("sampledOut")) {
+            SamplingTurboFilter filter = new SamplingTurboFilter();
+            filter.start();
+            context.addTurboFilter(filter);
+            logger.setLevel(Level.INFO);
+            LogSampling.mute();
+        } else {
+            logger.setLevel(Level.WARN);
+        }
+
+        film = new Film();
+        film.setId(1_000L);
+        film.setName("Фильм");
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        filmId = 1_000L;
+        userId = 2_000L;
+    }
+
+    @TearDown
+    public void tearDown() {
+        LogSampling.clear();
+    }
+
+    @Benchmark
+    public void formatted() { //как было в контроллерах и сервисах
+        log.info(String.format("Получен PUT-запрос на постановку лайка фильму id = %d от пользователя id = %d", filmId, userId));
+        log.info(String.format("Получен POST-запрос на добавление фильма: %s", film));
+        log.info("Фильм предоставлен");
+    }
+
+    @Benchmark
+    public void parameterized() {
+        log.info("Получен PUT-запрос на постановку лайка фильму id = {} от пользователя id = {}", filmId, userId);
+        log.info("Получен POST-запрос на добавление фильма: {}", film.getName());
+        log.debug("Фильм предоставлен");
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.controller.PopularResponseCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ResponseView;
+import ru.yandex.practicum.filmorate.model.TrendWindow;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PopularFilmsBenchmark { //GET /films/popular, ?year=2000 и ?window=24h на каталогах разного размера
+
+    @Param({"1000", "100000", "500000"})
+    int catalogSize;
+
+    @Param({"10", "100"})
+    long count;
+
+    private InMemoryFilmStorage storage;
+    private ObjectWriter writer;
+    private PopularResponseCache popularCache;
+
+    @Setup
+    public void setUp() {
+        storage = new InMemoryFilmStorage();
+        Random random = new Random(42);
+        for (int i = 0; i < catalogSize; i++) {
+            Film film = new Film();
+            film.setName("Фильм " + i);
+            film.setDescription("Описание");
+            film.setReleaseDate(LocalDate.of(1950 + i % 70, 1, 1));
+            film.setDuration(100);
+            storage.create(film);
+            int likes = random.nextInt(20);
+            for (long userId = 1; userId <= likes; userId++) {
+                storage.putLike(film.getId(), userId);
+            }
+        }
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        writer = objectMapper.writer();
+        popularCache = new PopularResponseCache(new FilmService(storage, new InMemoryUserStorage()), objectMapper,
+                Duration.ofSeconds(1));
+    }
+
+    @Benchmark
+    public Collection<Film> findPopular() {
+        return storage.findPopular(count);
+    }
+
+    @Benchmark
+    public Collection<Film> findPopularByYear() { //один год из семидесяти
+        return storage.findPopularByYear(2000, count);
+    }
+
+    @Benchmark
+    public Collection<Film> findTrending() { //те же лайки, но в окне за сутки
+        return storage.findTrending(TrendWindow.DAY, count);
+    }
+
+    @Benchmark
+    public byte[] serializePopular() throws JsonProcessingException { //выборка и кодирование Jackson на каждый запрос
+        return writer.writeValueAsBytes(storage.findPopular(count));
+    }
+
+    @Benchmark
+    public byte[] cachedPopular() { //GET /films/popular: готовые байты, пока фильмы не менялись
+        return popularCache.get(count, ResponseView.FULL).json();
+    }
+
+    @Benchmark
+    public List<Film> fullSortBaseline() { //прежняя реализация: сортировка всего каталога на каждый запрос
+        return storage.findAll().stream()
+                .sorted(Comparator.comparingInt((Film film) -> film.getLikes().size()).reversed())
+                .limit(count)
+                .toList();
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class PutLikeBenchmark { //лайки из нескольких потоков: несколько "горячих" фильмов против всего каталога
+
+    private static final int USERS = 100_000;
+    private static final int BATCH = 1000;
+
+    @Param({"4", "10000"})
+    int films;
+
+    private InMemoryFilmStorage storage;
+
+    @Setup
+    public void setUp() {
+        storage = new InMemoryFilmStorage();
+        for (int i = 0; i < films; i++) {
+            Film film = new Film();
+            film.setName("Фильм " + i);
+            film.setDescription("Описание");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            storage.create(film);
+        }
+    }
+
+    @Benchmark
+    public boolean toggleLike() { //повторный лайк снимается, поэтому размер множеств остаётся ограниченным
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long filmId = random.nextInt(films) + 1;
+        long userId = random.nextInt(USERS) + 1;
+        return storage.putLike(filmId, userId) || storage.deleteLike(filmId, userId);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2 * BATCH)
+    public boolean[] likeBatch() { //так применяет лайки очередь LikeQueue: пачка лайков, затем пачка снятий тех же пар
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<FilmLike> likes = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            likes.add(new FilmLike(random.nextInt(films) + 1L, random.nextInt(USERS) + 1L));
+        }
+        storage.putLikes(likes);
+        return storage.deleteLikes(likes);
+    }
+}
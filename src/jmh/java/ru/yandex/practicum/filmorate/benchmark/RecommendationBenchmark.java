@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecommendationBenchmark { //GET /users/{id}/recommendations: у пользователя userLikes лайков, у фильмов — степенное распределение
+
+    @Param({"1000000"})
+    int catalogSize;
+
+    @Param({"100000"})
+    int userCount;
+
+    @Param({"100", "3000"})
+    int userLikes;
+
+    private FilmService filmService;
+    private long userId;
+
+    @Setup
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        filmService = new FilmService(filmStorage, userStorage);
+        List<Film> films = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            Film film = new Film();
+            film.setName("Фильм " + i);
+            film.setDescription("Описание");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            films.add(film);
+        }
+        filmStorage.createAll(films);
+        List<User> users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@example.com");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(2000, 1, 1));
+            users.add(user);
+        }
+        userStorage.createAll(users);
+
+        // 50 лайков на пользователя в среднем, популярные фильмы выбираются чаще
+        Random random = new Random(42);
+        List<FilmLike> likes = new ArrayList<>();
+        for (long user = 1; user <= userCount; user++) {
+            int count = user == 1 ? userLikes : 1 + random.nextInt(100);
+            for (int i = 0; i < count; i++) {
+                long film = 1 + (long) (catalogSize * Math.pow(random.nextDouble(), 3));
+                likes.add(new FilmLike(film, user));
+            }
+            if (likes.size() > 100_000) {
+                filmStorage.putLikes(likes);
+                likes.clear();
+            }
+        }
+        filmStorage.putLikes(likes);
+        userId = 1;
+    }
+
+    @Benchmark
+    public List<Film> recommendations() {
+        return filmService.getRecommendations(userId, 10);
+    }
+}
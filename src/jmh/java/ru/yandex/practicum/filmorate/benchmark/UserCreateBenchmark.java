@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserCreateBenchmark { //POST /users: проверка уникальности email при разном числе пользователей
+
+    @Param({"1000", "100000"})
+    int existingUsers;
+
+    private UserService userService;
+    private long counter;
+
+    @Setup
+    public void setUp() {
+        userService = new UserService(new InMemoryUserStorage());
+        for (int i = 0; i < existingUsers; i++) {
+            userService.create(newUser(counter++));
+        }
+    }
+
+    @Benchmark
+    public User create() {
+        return userService.create(newUser(counter++));
+    }
+
+    private static User newUser(long number) {
+        User user = new User();
+        user.setEmail("user" + number + "@example.com");
+        user.setLogin("user" + number);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+}
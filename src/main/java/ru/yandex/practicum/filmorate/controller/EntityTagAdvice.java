@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ResponseView;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+
+// строгий ETag для ответов GET с фильмами и пользователями: тег строится из id и версий, а не из тела,
+// поэтому при совпадении с If-None-Match клиент получает 304 и тело вообще не сериализуется.
+// Краткая форма ответа — другое представление, поэтому её тег отличается суффиксом -summary
+@Order(1)
+@RestControllerAdvice
+public class EntityTagAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType contentType,
+                                  Class<? extends HttpMessageConverter<?>> converterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request.getMethod() != HttpMethod.GET) {
+            return body;
+        }
+        ResponseView view = ResponseView.FULL;
+        if (request instanceof ServletServerHttpRequest servletRequest) {
+            String param = servletRequest.getServletRequest().getParameter(SummaryViewAdvice.VIEW_PARAM);
+            view = param == null ? ResponseView.FULL : ResponseView.fromParam(param);
+        }
+        if (view == null) {
+            return body; //неверный view отклонит SummaryViewAdvice, ответ 304 его бы скрыл
+        }
+        String tag = tagOf(body, view);
+        if (tag == null) {
+            return body;
+        }
+        response.getHeaders().setETag(tag);
+        for (String candidate : request.getHeaders().getIfNoneMatch()) {
+            // для If-None-Match теги сравниваются без учёта признака слабого тега
+            if (candidate.equals("*") || candidate.equals(tag) || candidate.equals("W/" + tag)) {
+                response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                flush(response); //без тела заголовки сами не уходят, а ETag нужен и в ответе 304
+                return null;
+            }
+        }
+        return body;
+    }
+
+    private static void flush(ServerHttpResponse response) {
+        try {
+            response.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String tagOf(Object body, ResponseView view) {
+        String tag = tagOf(body);
+        if (tag == null || view != ResponseView.SUMMARY) {
+            return tag;
+        }
+        return tag.substring(0, tag.length() - 1) + "-" + view.getParam() + "\"";
+    }
+
+    private static String tagOf(Object body) {
+        if (body instanceof Film film) {
+            return "\"film-" + film.getId() + "-" + film.getVersion() + "\"";
+        }
+        if (body instanceof User user) {
+            return "\"user-" + user.getId() + "-" + user.getVersion() + "\"";
+        }
+        if (!(body instanceof Collection<?> items)) {
+            return null;
+        }
+        // версия списка — хеш пар (id, версия) в порядке выдачи: меняется и состав, и порядок, и любой элемент
+        long hash = items.size();
+        for (Object item : items) {
+            if (item instanceof Film film) {
+                hash = mix(mix(hash, film.getId()), film.getVersion());
+            } else if (item instanceof User user) {
+                hash = mix(mix(hash, user.getId()), user.getVersion());
+            } else {
+                return null;
+            }
+        }
+        return "\"list-" + items.size() + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    private static long mix(long hash, long value) {
+        hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+}
@@ -3,11 +3,22 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.ImportResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeQueue;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @RestController
@@ -16,12 +27,16 @@ import java.util.Collection;
 public class FilmController { //работа с запросами
 
     private final FilmService filmService;
+    private final NdjsonWriter ndjsonWriter;
+    private final JsonImportReader importReader;
+    private final PopularResponseCache popularCache;
+    private final Optional<LikeQueue> likeQueue; //есть, только если filmorate.likes.async.enabled=true
 
     @GetMapping("/{id}")
     public Film findFilmById(
             @PathVariable Long id
     ) {
-        log.info(String.format("Получен GET-запрос на получение фильма с id = %d", id));
+        log.info("Получен GET-запрос на получение фильма с id = {}", id);
         return filmService.findFilmById(id);
     }
 
@@ -31,42 +46,120 @@ public class FilmController { //работа с запросами
         return filmService.findAll();
     }
 
+    @GetMapping(params = "limit")
+    public Collection<Film> findPage(
+            @RequestParam(required = false, defaultValue = "0") Long after,
+            @RequestParam Integer limit
+    ) {
+        log.info("Получен GET-запрос на получение {} фильмов после id = {}.", limit, after);
+        return filmService.findPage(after, limit);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAll() {
+        log.info("Получен GET-запрос на потоковую выдачу всех фильмов.");
+        return ndjsonWriter.write(filmService::findPage, Film::getId);
+    }
+
+    @GetMapping("/{id}/likes")
+    public long[] findLikeIds(
+            @PathVariable Long id,
+            @RequestParam(required = false, defaultValue = "0") Long after,
+            @RequestParam(required = false, defaultValue = "1000") Integer limit
+    ) {
+        log.info("Получен GET-запрос на получение {} лайков фильма {} после id = {}.", limit, id, after);
+        return filmService.findLikeIds(id, after, limit);
+    }
+
     @GetMapping("/popular")
-    public Collection<Film> findPopular(@RequestParam(required = false, defaultValue = "10") Long count) {
-        log.info(String.format("Получен GET-запрос на получение %d популярных фильмов.", count));
-        return filmService.findPopular(count);
+    public ResponseEntity<byte[]> findPopular(
+            @RequestParam(required = false, defaultValue = "10") Long count,
+            @RequestParam(required = false, defaultValue = "full") String view
+    ) {
+        log.info("Получен GET-запрос на получение {} популярных фильмов.", count);
+        // тело уже закодировано; при совпадении If-None-Match с тегом Spring ответит 304 без тела
+        PopularResponseCache.Encoded popular = popularCache.get(count, SummaryViewAdvice.view(view));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(popular.tag())
+                .body(popular.json());
+    }
+
+    @GetMapping(value = "/popular", params = {"year", "!window"})
+    public Collection<Film> findPopularByYear(
+            @RequestParam Integer year,
+            @RequestParam(required = false, defaultValue = "10") Long count
+    ) {
+        log.info("Получен GET-запрос на получение {} популярных фильмов {} года.", count, year);
+        return filmService.findPopularByYear(year, count);
+    }
+
+    @GetMapping(value = "/popular", params = "window")
+    public Collection<Film> findTrending(
+            @RequestParam String window,
+            @RequestParam(required = false, defaultValue = "10") Long count
+    ) {
+        log.info("Получен GET-запрос на получение {} популярных фильмов за {}.", count, window);
+        return filmService.findTrending(window, count);
     }
 
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping
     public Film create(@RequestBody Film film) {
-        log.info(String.format("Получен POST-запрос на добавление фильма: %s", film));
+        log.info("Получен POST-запрос на добавление фильма: {}", film.getName());
         return filmService.create(film);
     }
 
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ImportResult importFilms(InputStream body) throws IOException {
+        log.info("Получен POST-запрос на импорт фильмов.");
+        return filmService.importFilms(importReader.read(body, Film.class));
+    }
+
     @PutMapping
     public Film update(@RequestBody Film film) {
-        log.info(String.format("Получен PUT-запрос на обновление фильма: %s", film));
+        log.info("Получен PUT-запрос на обновление фильма с id = {}", film.getId());
         return filmService.update(film);
     }
 
+    // при включённой очереди лайк только принимается (202) и применяется позже, повторный лайк не считается ошибкой
     @PutMapping("/{id}/like/{user-id}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void putLike(
+    public ResponseEntity<Void> putLike(
             @PathVariable("id") Long filmId,
-            @PathVariable Long userId
+            @PathVariable("user-id") Long userId
     ) {
-        log.info(String.format("Получен PUT-запрос на постановку лайка фильму id = %d от пользователя id = %d", filmId, userId));
+        log.info("Получен PUT-запрос на постановку лайка фильму id = {} от пользователя id = {}", filmId, userId);
+        if (likeQueue.isPresent()) {
+            likeQueue.get().putLike(filmId, userId);
+            return ResponseEntity.accepted().build();
+        }
         filmService.putLike(filmId, userId);
+        return ResponseEntity.noContent().build();
     }
 
     @DeleteMapping("/{id}/like/{user-id}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteLike(
+    public ResponseEntity<Void> deleteLike(
             @PathVariable("id") Long filmId,
-            @PathVariable Long userId
+            @PathVariable("user-id") Long userId
     ) {
-        log.info(String.format("Получен DELETE-запрос на удаление лайка фильму id = %d от пользователя id = %d", filmId, userId));
+        log.info("Получен DELETE-запрос на удаление лайка фильму id = {} от пользователя id = {}", filmId, userId);
+        if (likeQueue.isPresent()) {
+            likeQueue.get().deleteLike(filmId, userId);
+            return ResponseEntity.accepted().build();
+        }
         filmService.deleteLike(filmId, userId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PutMapping("/likes")
+    public List<BatchItemResult> putLikes(@RequestBody List<FilmLike> likes) {
+        log.info("Получен пакетный PUT-запрос на постановку {} лайков", likes.size());
+        return filmService.putLikes(likes);
+    }
+
+    @DeleteMapping("/likes")
+    public List<BatchItemResult> deleteLikes(@RequestBody List<FilmLike> likes) {
+        log.info("Получен пакетный DELETE-запрос на удаление {} лайков", likes.size());
+        return filmService.deleteLikes(likes);
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+@Component
+@RequiredArgsConstructor
+public class JsonImportReader { //потоковое чтение тела импорта: JSON-массив или NDJSON разбираются по одному элементу
+
+    private final ObjectMapper objectMapper;
+
+    public <T> Iterator<T> read(InputStream body, Class<T> type) throws IOException {
+        // для массива на верхнем уровне отдаются его элементы, для NDJSON — значения подряд.
+        // null отдаётся как null: сервис отклоняет этот элемент, а не весь импорт
+        ObjectReader reader = objectMapper.readerFor(type);
+        JsonParser parser = objectMapper.createParser(body);
+        return new Iterator<>() {
+            private long index;
+            private boolean started;
+            private boolean array;
+            private JsonToken token; //первый токен ещё не отданного элемента
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    if (token == null) {
+                        token = advance();
+                    }
+                    return token != null;
+                } catch (IOException e) {
+                    throw parseError(e);
+                }
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    T value = token == JsonToken.VALUE_NULL ? null : reader.readValue(parser);
+                    token = null;
+                    index++;
+                    return value;
+                } catch (IOException e) {
+                    throw parseError(e);
+                }
+            }
+
+            private JsonToken advance() throws IOException {
+                JsonToken next = parser.nextToken();
+                if (!started) {
+                    started = true;
+                    array = next == JsonToken.START_ARRAY;
+                    if (array) {
+                        next = parser.nextToken();
+                    }
+                }
+                return array && next == JsonToken.END_ARRAY ? null : next;
+            }
+
+            private ValidationException parseError(IOException e) {
+                String reason = e instanceof JsonProcessingException jsonError ? jsonError.getOriginalMessage() : e.getMessage();
+                return new ValidationException("Тело запроса не разобрано на элементе " + index + ": " + reason);
+            }
+        };
+    }
+}
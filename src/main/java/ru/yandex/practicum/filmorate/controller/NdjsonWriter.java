@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Collection;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+@Component
+@RequiredArgsConstructor
+public class NdjsonWriter { //построчная выдача в NDJSON: сущности пишутся в поток страницами, весь список в памяти не собирается
+    static final int PAGE_SIZE = 500;
+
+    private final ObjectMapper objectMapper;
+
+    public <T> StreamingResponseBody write(BiFunction<Long, Integer, Collection<T>> pages, Function<T, Long> idOf) {
+        ObjectWriter writer = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return out -> {
+            Long after = 0L;
+            Collection<T> page;
+            do {
+                page = pages.apply(after, PAGE_SIZE);
+                for (T item : page) {
+                    writer.writeValue(out, item);
+                    out.write('\n');
+                    after = idOf.apply(item);
+                }
+                out.flush();
+            } while (page.size() == PAGE_SIZE);
+        };
+    }
+}
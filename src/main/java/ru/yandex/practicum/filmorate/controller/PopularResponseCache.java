@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ResponseView;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// готовые JSON-ответы GET /films/popular по значениям count и view. Ответ кодируется заново, когда сменилась версия
+// фильмов, но не чаще раза за max-staleness: при частых лайках список обновляется с этой задержкой
+@Component
+public class PopularResponseCache {
+    static final long MAX_CACHED_COUNT = 100; //более длинные списки кодируются на каждый запрос и память не занимают
+
+    private final FilmService filmService;
+    private final ObjectWriter writer;
+    private final long maxStalenessNanos;
+    private final Map<Key, Encoded> responses = new ConcurrentHashMap<>();
+
+    public PopularResponseCache(FilmService filmService, ObjectMapper objectMapper,
+                                @Value("${filmorate.popular-cache.max-staleness:PT1S}") Duration maxStaleness) {
+        this.filmService = filmService;
+        this.writer = objectMapper.writer();
+        this.maxStalenessNanos = maxStaleness.toNanos();
+    }
+
+    public Encoded get(Long count, ResponseView view) {
+        // версия читается до выборки: изменение, случившееся во время кодирования, вызовет следующее обновление
+        long version = filmService.currentVersion();
+        Key key = new Key(count, view);
+        Encoded cached = responses.get(key);
+        if (cached != null && (cached.version() == version || System.nanoTime() - cached.encodedAt() < maxStalenessNanos)) {
+            return cached;
+        }
+        Collection<Film> films = filmService.findPopular(count);
+        Encoded encoded;
+        // тег снимается до кодирования тех же живых фильмов: лайк между ними сделает тег старше тела, а не новее,
+        // и клиент перезапросит список, а не будет получать 304 на устаревшее тело
+        String tag = EntityTagAdvice.tagOf(films, view);
+        try {
+            byte[] json = writer.writeValueAsBytes(SummaryViewAdvice.summarize(films, view));
+            encoded = new Encoded(version, System.nanoTime(), json, tag);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (count > 0 && count <= MAX_CACHED_COUNT) {
+            responses.merge(key, encoded, (old, fresh) -> fresh.version() >= old.version() ? fresh : old);
+        }
+        return encoded;
+    }
+
+    private record Key(long count, ResponseView view) {
+    }
+
+    public record Encoded(long version, long encodedAt, byte[] json, String tag) {
+    }
+}
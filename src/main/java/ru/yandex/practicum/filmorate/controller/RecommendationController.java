@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/users")
+public class RecommendationController { //рекомендации фильмов по общим лайкам с похожими пользователями
+
+    private final FilmService filmService;
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(
+            @PathVariable Long id,
+            @RequestParam(required = false, defaultValue = "10") Integer count
+    ) {
+        log.info("Получен GET-запрос на рекомендации фильмов для пользователя {}.", id);
+        return filmService.getRecommendations(id, count);
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.ResponseView;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserSummary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// ?view=summary для любого GET-ответа с фильмами или пользователями: множества likes и friends заменяются числами,
+// сами id доступны постранично через /films/{id}/likes и /users/{id}/friends/ids.
+// Выполняется после EntityTagAdvice: тег считается по исходным сущностям, а при 304 тела уже нет
+@Order(2)
+@RestControllerAdvice
+public class SummaryViewAdvice implements ResponseBodyAdvice<Object> {
+    static final String VIEW_PARAM = "view";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType contentType,
+                                  Class<? extends HttpMessageConverter<?>> converterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        // только GET: параметр проверяется уже после обработчика, и запись с неверным view была бы сохранена,
+        // хотя клиент получил бы 400. Тела ошибок не проверяются, иначе неверный view сломал бы и ответ о нём самом
+        if (request.getMethod() != HttpMethod.GET
+                || !(body instanceof Film || body instanceof User || body instanceof Collection<?>)
+                || !(request instanceof ServletServerHttpRequest servletRequest)) {
+            return body;
+        }
+        String param = servletRequest.getServletRequest().getParameter(VIEW_PARAM);
+        return param == null ? body : summarize(body, view(param));
+    }
+
+    static ResponseView view(String param) {
+        ResponseView view = ResponseView.fromParam(param);
+        if (view == null) {
+            throw new ValidationException("Параметр view должен быть full или summary");
+        }
+        return view;
+    }
+
+    static Object summarize(Object body, ResponseView view) {
+        if (view != ResponseView.SUMMARY) {
+            return body;
+        }
+        if (body instanceof Film film) {
+            return FilmSummary.of(film);
+        }
+        if (body instanceof User user) {
+            return UserSummary.of(user);
+        }
+        if (!(body instanceof Collection<?> items)) {
+            return body;
+        }
+        List<Object> summaries = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (item instanceof Film film) {
+                summaries.add(FilmSummary.of(film));
+            } else if (item instanceof User user) {
+                summaries.add(UserSummary.of(user));
+            } else {
+                return body; //список не из фильмов и пользователей не меняется
+            }
+        }
+        return summaries;
+    }
+}
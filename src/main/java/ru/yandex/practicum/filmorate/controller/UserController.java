@@ -3,11 +3,19 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.ImportResult;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -16,10 +24,12 @@ import java.util.Collection;
 public class UserController {
 
     private final UserService userService;
+    private final NdjsonWriter ndjsonWriter;
+    private final JsonImportReader importReader;
 
     @GetMapping("/{id}")
     public User findUserById(@PathVariable Long id) {
-        log.info(String.format("Получен GET-запрос на получение пользователя по id %d.", id));
+        log.info("Получен GET-запрос на получение пользователя по id {}.", id);
         return userService.findUserById(id);
     }
 
@@ -29,30 +39,72 @@ public class UserController {
         return userService.findAll();
     }
 
+    @GetMapping(params = "limit")
+    public Collection<User> findPage(
+            @RequestParam(required = false, defaultValue = "0") Long after,
+            @RequestParam Integer limit
+    ) {
+        log.info("Получен GET-запрос на получение {} пользователей после id = {}.", limit, after);
+        return userService.findPage(after, limit);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAll() {
+        log.info("Получен GET-запрос на потоковую выдачу всех пользователей.");
+        return ndjsonWriter.write(userService::findPage, User::getId);
+    }
+
     @GetMapping("/{id}/friends")
     Collection<User> getFriends(@PathVariable Long id) {
-        log.info(String.format("Получен GET-запрос на получение всех друзей пользователя %d.", id));
+        log.info("Получен GET-запрос на получение всех друзей пользователя {}.", id);
         return userService.getFriends(id);
     }
 
+    @GetMapping("/{id}/friends/ids")
+    long[] getFriendIds(
+            @PathVariable Long id,
+            @RequestParam(required = false, defaultValue = "0") Long after,
+            @RequestParam(required = false, defaultValue = "1000") Integer limit
+    ) {
+        log.info("Получен GET-запрос на получение {} id друзей пользователя {} после id = {}.", limit, id, after);
+        return userService.getFriendIds(id, after, limit);
+    }
+
+    @GetMapping("/{id}/friends/suggestions")
+    List<User> getFriendSuggestions(
+            @PathVariable Long id,
+            @RequestParam(required = false, defaultValue = "10") Integer count
+    ) {
+        log.info("Получен GET-запрос на предложения друзей для пользователя {}.", id);
+        return userService.getFriendSuggestions(id, count);
+    }
+
     @GetMapping("/{id}/friends/common/{other-id}")
     Collection<User> getCommonFriends(
             @PathVariable("id") Long userId,
-            @PathVariable Long otherId
+            @PathVariable("other-id") Long otherId,
+            @RequestParam(required = false, defaultValue = "0") Long offset,
+            @RequestParam(required = false) Long limit
     ) {
-        log.info(String.format("Получен GET-запрос на получение общих друзей пользователя %d с пользователем %d.", userId, otherId));
-        return userService.getCommonFriends(userId, otherId);
+        log.info("Получен GET-запрос на получение общих друзей пользователя {} с пользователем {}.", userId, otherId);
+        return userService.getCommonFriends(userId, otherId, offset, limit);
     }
 
     @PostMapping
     public User create(@RequestBody User user) {
-        log.info(String.format("Получен POST-запрос на создание пользователя: %s", user));
+        log.info("Получен POST-запрос на создание пользователя: {}", user.getLogin());
         return userService.create(user);
     }
 
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ImportResult importUsers(InputStream body) throws IOException {
+        log.info("Получен POST-запрос на импорт пользователей.");
+        return userService.importUsers(importReader.read(body, User.class));
+    }
+
     @PutMapping
     public User update(@RequestBody User user) {
-        log.info(String.format("Получен PUT-запрос на обновление пользователя: %s", user));
+        log.info("Получен PUT-запрос на обновление пользователя с id = {}", user.getId());
         return userService.update(user);
     }
 
@@ -60,19 +112,25 @@ public class UserController {
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void putFriend(
             @PathVariable("id") Long userId,
-            @PathVariable Long friendId
+            @PathVariable("friend-id") Long friendId
     ) {
-        log.info(String.format("Получен PUT-запрос на добавление в друзья пользователя %d пользователю %d", userId, friendId));
+        log.info("Получен PUT-запрос на добавление в друзья пользователя {} пользователю {}", userId, friendId);
         userService.putFriend(userId, friendId);
     }
 
+    @PutMapping("/friends")
+    public List<BatchItemResult> putFriends(@RequestBody List<Friendship> friendships) {
+        log.info("Получен пакетный PUT-запрос на добавление {} дружб", friendships.size());
+        return userService.putFriends(friendships);
+    }
+
     @DeleteMapping("/{id}/friends/{friend-id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteFriend(
             @PathVariable("id") Long userId,
-            @PathVariable Long friendId
+            @PathVariable("friend-id") Long friendId
     ) {
-        log.info(String.format("Получен DELETE-запрос на удаление пользователя %d из друзей пользователя %d", friendId, userId));
+        log.info("Получен DELETE-запрос на удаление пользователя {} из друзей пользователя {}", friendId, userId);
         userService.deleteFriend(userId, friendId);
     }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package ru.yandex.practicum.filmorate.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -36,4 +38,12 @@ public class ErrorHandler {
                 e.getMessage()
         );
     }
-}
\ No newline at end of file
+
+    //503: очередь лайков переполнена, клиенту предлагается повторить запрос через секунду
+    @ExceptionHandler
+    public ResponseEntity<ErrorResponse> handleQueueFullException(final QueueFullException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponse("Сервис перегружен, повторите запрос позже.", e.getMessage()));
+    }
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.exception;
+
+public class QueueFullException extends RuntimeException { //очередь асинхронной обработки заполнена, запрос стоит повторить позже
+    public QueueFullException(String message) {
+        super(message);
+    }
+}
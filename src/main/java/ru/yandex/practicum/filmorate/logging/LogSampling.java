@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.logging;
+
+public final class LogSampling { //признак того, что текущий запрос не попал в выборку журнала
+
+    private static final ThreadLocal<Boolean> MUTED = new ThreadLocal<>();
+
+    private LogSampling() {
+    }
+
+    public static boolean isMuted() {
+        return MUTED.get() != null;
+    }
+
+    public static void mute() {
+        MUTED.set(Boolean.TRUE);
+    }
+
+    public static void clear() {
+        MUTED.remove();
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Component
+public class RequestSamplingFilter extends OncePerRequestFilter { //решает один раз на запрос, пишется ли его INFO-журнал
+    private final double sampleRate;
+
+    public RequestSamplingFilter(@Value("${filmorate.logging.sample-rate:1.0}") double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            chain.doFilter(request, response);
+            return;
+        }
+        LogSampling.mute();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            LogSampling.clear();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+public class SamplingTurboFilter extends TurboFilter {
+    private static final String PREFIX = "ru.yandex.practicum.filmorate";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // срабатывает до форматирования сообщения: для невыбранного запроса INFO и ниже не стоят ничего,
+        // предупреждения и ошибки проходят всегда
+        if (level == null || level.isGreaterOrEqual(Level.WARN) || !LogSampling.isMuted()) {
+            return FilterReply.NEUTRAL;
+        }
+        return logger.getName().startsWith(PREFIX) ? FilterReply.DENY : FilterReply.NEUTRAL;
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StorageMetrics implements MeterBinder { //размеры каталога и распределение числа друзей
+    private static final int PAGE_SIZE = 1000;
+    private static final long[] DEGREE_UPPER_BOUNDS = {0, 10, 100, 1000, Long.MAX_VALUE};
+    private static final String[] DEGREE_BUCKETS = {"0", "1-10", "11-100", "101-1000", "1001+"};
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final AtomicLongArray friendDegrees = new AtomicLongArray(DEGREE_BUCKETS.length);
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.films", filmStorage, FilmStorage::count)
+                .description("Количество фильмов в каталоге")
+                .register(registry);
+        Gauge.builder("filmorate.likes", filmStorage, FilmStorage::countLikes)
+                .description("Общее количество лайков")
+                .register(registry);
+        Gauge.builder("filmorate.users", userStorage, UserStorage::count)
+                .description("Количество пользователей")
+                .register(registry);
+        for (int i = 0; i < DEGREE_BUCKETS.length; i++) {
+            int bucket = i;
+            Gauge.builder("filmorate.users.friends.degree", friendDegrees, degrees -> degrees.get(bucket))
+                    .description("Количество пользователей с числом друзей в заданном диапазоне")
+                    .tag("bucket", DEGREE_BUCKETS[i])
+                    .register(registry);
+        }
+    }
+
+    // распределение не поддерживается на каждом изменении дружбы, а пересчитывается обходом страниц
+    @Scheduled(fixedDelayString = "${filmorate.metrics.friend-degree-refresh:PT1M}")
+    public void refreshFriendDegrees() {
+        long[] counts = new long[DEGREE_BUCKETS.length];
+        long after = 0;
+        Collection<User> page;
+        do {
+            page = userStorage.findPage(after, PAGE_SIZE);
+            for (User user : page) {
+                counts[bucketOf(user.getFriends().size())]++;
+                after = user.getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+        for (int i = 0; i < counts.length; i++) {
+            friendDegrees.set(i, counts[i]);
+        }
+        log.debug("Распределение числа друзей обновлено");
+    }
+
+    private static int bucketOf(int degree) {
+        int bucket = 0;
+        while (degree > DEGREE_UPPER_BOUNDS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+}
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.model;
+
+public enum BatchStatus {
+    APPLIED,          //изменение выполнено
+    UNCHANGED,        //нечего менять: лайк/дружба уже есть или её не было
+    INVALID,          //не указан id или пользователь дружит сам с собой
+    FILM_NOT_FOUND,
+    USER_NOT_FOUND,
+    FRIEND_NOT_FOUND
+}
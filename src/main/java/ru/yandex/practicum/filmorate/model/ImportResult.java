@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ImportResult { //итог импорта: сколько элементов прочитано, сохранено и отклонено
+    static final int MAX_ERRORS = 100;
+
+    long received;
+    long imported;
+    long rejected;
+    boolean complete = true; //false, если тело не удалось дочитать
+    final List<String> errors = new ArrayList<>();
+
+    public void reject(long index, String message) {
+        rejected++;
+        addError("Элемент " + index + ": " + message);
+    }
+
+    public void abort(String message) {
+        complete = false;
+        addError(message);
+    }
+
+    private void addError(String message) {
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(message);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum ResponseView { //форма фильмов и пользователей в ответе: целиком или с числами вместо множеств id
+    FULL("full"),
+    SUMMARY("summary");
+
+    private final String param;
+
+    public static ResponseView fromParam(String param) {
+        for (ResponseView view : values()) {
+            if (view.param.equals(param)) {
+                return view;
+            }
+        }
+        return null;
+    }
+}
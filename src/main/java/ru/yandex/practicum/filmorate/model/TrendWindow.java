@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+
+@Getter
+@RequiredArgsConstructor
+public enum TrendWindow { //окно рейтинга по свежим лайкам; лайки выпадают из окна целыми корзинами
+    DAY("24h", Duration.ofHours(24), Duration.ofHours(1)),
+    WEEK("7d", Duration.ofDays(7), Duration.ofHours(6));
+
+    private final String param;
+    private final Duration length;
+    private final Duration bucket;
+
+    public static TrendWindow fromParam(String param) {
+        for (TrendWindow window : values()) {
+            if (window.param.equals(param)) {
+                return window;
+            }
+        }
+        return null;
+    }
+}
@@ -1,14 +1,14 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
 
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 @Data
 @EqualsAndHashCode(of = {"id"})
@@ -19,5 +19,7 @@ public class User {
     String login;
     String name;
     LocalDate birthday;
-    final Set<Long> friends = new HashSet<>();
+    final LongHashSet friends = new LongHashSet();
+    @JsonIgnore
+    long version; //меняется при каждом изменении, из него строится ETag
 }
\ No newline at end of file
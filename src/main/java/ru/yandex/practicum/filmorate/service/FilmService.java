@@ -1,30 +1,46 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.ConditionsNotMetException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchStatus;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.TrendWindow;
 import lombok.extern.slf4j.Slf4j;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongIntHashMap;
 
 import java.time.LocalDate;
 import java.time.Month;
-import java.util.Collection;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
 @Slf4j
 @Service
+@Timed(value = "filmorate.service", histogram = true)
 @RequiredArgsConstructor
 public class FilmService { //логика обработки запросов
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int IMPORT_BATCH_SIZE = 1000;
+    private static final int SIMILAR_USERS = 50;
+    private static final long CO_LIKE_BUDGET = 1_000_000; //сколько чужих лайков просматривается при поиске похожих
 
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
 
     public Film findFilmById(Long id) {
-        log.info("Обработка GET-запроса на получение фильма по айди.");
+        log.debug("Обработка GET-запроса на получение фильма по айди.");
         if (!filmStorage.checkId(id)) {
             log.warn("Фильм с id = {}, не найден", id);
             throw new NotFoundException("Фильм с id = " + id + " не найден");
@@ -33,23 +49,156 @@ public class FilmService { //логика обработки запросов
     }
 
     public Collection<Film> findAll() {
-        log.info("Обработка GET-запроса на получение всех фильмов.");
+        log.debug("Обработка GET-запроса на получение всех фильмов.");
         return filmStorage.findAll();
     }
 
+    public Collection<Film> findPage(Long after, Integer limit) {
+        log.debug("Обработка GET-запроса на получение страницы фильмов после id = {}.", after);
+        checkPage(after, limit);
+        return filmStorage.findPage(after, limit);
+    }
+
+    public long[] findLikeIds(Long filmId, Long after, Integer limit) {
+        log.debug("Обработка GET-запроса на получение лайков фильма {} после id = {}.", filmId, after);
+        if (!filmStorage.checkId(filmId)) {
+            log.warn("Фильм с id = {}, не найден", filmId);
+            throw new NotFoundException("Фильм с id = " + filmId + " не найден");
+        }
+        checkPage(after, limit);
+        return filmStorage.findLikeIds(filmId, after, limit);
+    }
+
     public Collection<Film> findPopular(Long count) {
-        log.info("Обработка GET-запроса на получение популярных фильмов.");
+        log.debug("Обработка GET-запроса на получение популярных фильмов.");
         return filmStorage.findPopular(count);
     }
 
+    public long currentVersion() {
+        return filmStorage.currentVersion();
+    }
+
+    public Collection<Film> findPopularByYear(Integer year, Long count) {
+        log.debug("Обработка GET-запроса на получение популярных фильмов {} года.", year);
+        return filmStorage.findPopularByYear(year, count);
+    }
+
+    public Collection<Film> findTrending(String window, Long count) {
+        log.debug("Обработка GET-запроса на получение популярных фильмов за окно {}.", window);
+        TrendWindow trendWindow = TrendWindow.fromParam(window);
+        if (trendWindow == null) {
+            log.warn("Валидация не пройдена — неизвестное окно: {}", window);
+            throw new ValidationException("Окно должно быть 24h или 7d");
+        }
+        return filmStorage.findTrending(trendWindow, count);
+    }
+
+    public List<Film> getRecommendations(Long userId, Integer count) {
+        log.debug("Обработка GET-запроса на рекомендации фильмов для пользователя {}.", userId);
+        if (!userStorage.checkId(userId)) {
+            log.warn("Пользователь с id = {}, не найден", userId);
+            throw new NotFoundException("Пользователь с id = " + userId + " не найден");
+        }
+        if (count == null || count <= 0 || count > MAX_PAGE_SIZE) {
+            log.warn("Валидация не пройдена — неверное количество рекомендаций: {}", count);
+            throw new ValidationException("Количество рекомендаций должно быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        long[] liked = filmStorage.findLikedFilmIds(userId);
+        if (liked.length == 0) {
+            return List.of();
+        }
+        LongHashSet likedSet = new LongHashSet();
+        for (long filmId : liked) {
+            likedSet.add(filmId);
+        }
+
+        // похожесть пользователя — число общих лайков. Сначала просматриваются фильмы с меньшим числом лайков:
+        // они лучше говорят о вкусе, а на самых популярных бюджет заканчивается
+        Film[] likedFilms = Arrays.stream(liked)
+                .mapToObj(filmStorage::findFilmById)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingInt(film -> film.getLikes().size()))
+                .toArray(Film[]::new);
+        int scanned = 0;
+        long budget = CO_LIKE_BUDGET;
+        while (scanned < likedFilms.length && (scanned == 0 || likedFilms[scanned].getLikes().size() <= budget)) {
+            budget -= likedFilms[scanned++].getLikes().size();
+        }
+        LongIntHashMap overlap = Arrays.stream(likedFilms, 0, scanned).parallel()
+                .collect(LongIntHashMap::new, (counts, film) -> {
+                    for (long other : film.getLikes().toLongArray()) {
+                        if (other != userId) {
+                            counts.add(other, 1);
+                        }
+                    }
+                }, LongIntHashMap::merge);
+
+        // кандидат набирает вес каждого похожего пользователя, который его лайкнул
+        LongIntHashMap scores = Arrays.stream(overlap.topKeys(SIMILAR_USERS)).parallel()
+                .collect(LongIntHashMap::new, (counts, similar) -> {
+                    int weight = overlap.get(similar);
+                    for (long filmId : filmStorage.findLikedFilmIds(similar)) {
+                        if (!likedSet.contains(filmId)) {
+                            counts.add(filmId, weight);
+                        }
+                    }
+                }, LongIntHashMap::merge);
+        return Arrays.stream(scores.topKeys(count))
+                .mapToObj(filmStorage::findFilmById)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
     public Film create(Film film) {
-        log.info("Обработка POST-запроса на добавление фильма: {}", film);
+        log.debug("Обработка POST-запроса на добавление фильма: {}", film.getName());
         check(film);
         return filmStorage.create(film);
     }
 
+    public ImportResult importFilms(Iterator<Film> films) {
+        log.debug("Обработка POST-запроса на импорт фильмов.");
+        // элементы читаются по одному и сохраняются пачками, всё тело в памяти не собирается
+        ImportResult result = new ImportResult();
+        List<Film> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        while (true) {
+            Film film;
+            try {
+                if (!films.hasNext()) {
+                    break;
+                }
+                film = films.next();
+            } catch (ValidationException e) {
+                log.warn("Импорт фильмов прерван: {}", e.getMessage());
+                result.abort(e.getMessage());
+                break;
+            }
+            long index = result.getReceived();
+            result.setReceived(index + 1);
+            if (film == null) { //null в массиве
+                result.reject(index, "Фильм не указан");
+                continue;
+            }
+            try {
+                check(film);
+            } catch (ValidationException e) {
+                result.reject(index, e.getMessage());
+                continue;
+            }
+            batch.add(film);
+            if (batch.size() == IMPORT_BATCH_SIZE) {
+                result.setImported(result.getImported() + filmStorage.createAll(batch).size());
+                batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            result.setImported(result.getImported() + filmStorage.createAll(batch).size());
+        }
+        log.info("Импорт фильмов завершён: сохранено {} из {}.", result.getImported(), result.getReceived());
+        return result;
+    }
+
     public Film update(Film newFilm) {
-        log.info("Обработка PUT-запрос на обновление фильма: {}", newFilm);
+        log.debug("Обработка PUT-запрос на обновление фильма с id = {}", newFilm.getId());
         if (newFilm.getId() == null) {
             log.warn("Обновление отклонено — ID не указан");
             throw new ConditionsNotMetException("Id не указан");
@@ -58,7 +207,10 @@ public class FilmService { //логика обработки запросов
             log.warn("Фильм с id = {}, не найден", newFilm.getId());
             throw new NotFoundException("Фильм с id = " + newFilm.getId() + " не найден");
         }
-        Film film = filmStorage.findFilmById(newFilm.getId());
+        // в хранилище уходят только меняемые поля, остальные null: хранилище накладывает их на текущий фильм
+        // под своей блокировкой, поэтому живой объект не меняется, а одновременные обновления не смешивают поля
+        Film film = new Film();
+        film.setId(newFilm.getId());
 
         if (newFilm.getName() != null && !newFilm.getName().isBlank()) {
             film.setName(newFilm.getName());
@@ -81,27 +233,26 @@ public class FilmService { //логика обработки запросов
     }
 
     public void putLike(Long filmId, Long userId) {
-        if (!filmStorage.checkId(filmId)) {
-            log.warn("Фильм с id = {}, не найден", filmId);
-            throw new NotFoundException("Фильм с id = " + filmId + " не найден");
-        }
+        checkLike(filmId, userId);
 
-        if (!userStorage.checkId(userId)) {
-            log.warn("Пользователь с id = {}, не найден", userId);
-            throw new NotFoundException("Пользователь с id = " + userId + " не найден");
-        }
-
-        Film film = filmStorage.findFilmById(filmId);
-
-        if (film.getLikes().contains(userId)) {
+        if (!filmStorage.putLike(filmId, userId)) {
             log.warn("Фильм с id = {}, лайк уже поставлен", filmId);
             throw new NotFoundException("Фильму с id = " + filmId + " лайк уже поставлен.");
         }
         log.info("Лайк поставлен фильму с id {}.", filmId);
-        film.getLikes().add(userId);
     }
 
     public void deleteLike(Long filmId, Long userId) {
+        checkLike(filmId, userId);
+
+        if (!filmStorage.deleteLike(filmId, userId)) {
+            log.warn("Фильм с id = {}, лайк не поставлен", filmId);
+            throw new NotFoundException("Фильму с id = " + filmId + " лайк не поставлен.");
+        }
+        log.info("Лайк фильму с id {}, удален.", filmId);
+    }
+
+    public void checkLike(Long filmId, Long userId) { //общая проверка для синхронных лайков и очереди LikeQueue
         if (!filmStorage.checkId(filmId)) {
             log.warn("Фильм с id = {}, не найден", filmId);
             throw new NotFoundException("Фильм с id = " + filmId + " не найден");
@@ -111,14 +262,86 @@ public class FilmService { //логика обработки запросов
             log.warn("Пользователь с id = {}, не найден", userId);
             throw new NotFoundException("Пользователь с id = " + userId + " не найден");
         }
+    }
 
-        Film film = filmStorage.findFilmById(filmId);
-        if (!film.getLikes().contains(userId)) {
-            log.warn("Фильм с id = {}, лайк не поставлен", filmId);
-            throw new NotFoundException("Фильму с id = " + filmId + " лайк не поставлен.");
+    public List<BatchItemResult> putLikes(List<FilmLike> likes) {
+        log.debug("Обработка пакетного PUT-запроса на постановку лайков.");
+        List<BatchItemResult> results = applyLikes(likes, filmStorage::putLikes);
+        log.info("Пакет лайков обработан: поставлено {} из {}.", countApplied(results), results.size());
+        return results;
+    }
+
+    public List<BatchItemResult> deleteLikes(List<FilmLike> likes) {
+        log.debug("Обработка пакетного DELETE-запроса на удаление лайков.");
+        List<BatchItemResult> results = applyLikes(likes, filmStorage::deleteLikes);
+        log.info("Пакет лайков обработан: удалено {} из {}.", countApplied(results), results.size());
+        return results;
+    }
+
+    private List<BatchItemResult> applyLikes(List<FilmLike> likes, Function<List<FilmLike>, boolean[]> mutation) {
+        checkBatch(likes);
+        // существование проверяется один раз на каждый различный id пакета
+        Set<Long> films = filmStorage.findExistingIds(likes.stream()
+                .filter(Objects::nonNull)
+                .map(FilmLike::getFilmId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+        Set<Long> users = userStorage.findExistingIds(likes.stream()
+                .filter(Objects::nonNull)
+                .map(FilmLike::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        BatchStatus[] statuses = new BatchStatus[likes.size()];
+        List<FilmLike> valid = new ArrayList<>(likes.size());
+        int[] positions = new int[likes.size()];
+        for (int i = 0; i < statuses.length; i++) {
+            FilmLike like = likes.get(i);
+            if (like == null || like.getFilmId() == null || like.getUserId() == null) {
+                statuses[i] = BatchStatus.INVALID;
+            } else if (!films.contains(like.getFilmId())) {
+                statuses[i] = BatchStatus.FILM_NOT_FOUND;
+            } else if (!users.contains(like.getUserId())) {
+                statuses[i] = BatchStatus.USER_NOT_FOUND;
+            } else {
+                positions[valid.size()] = i;
+                valid.add(like);
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            boolean[] applied = mutation.apply(valid);
+            for (int j = 0; j < applied.length; j++) {
+                statuses[positions[j]] = applied[j] ? BatchStatus.APPLIED : BatchStatus.UNCHANGED;
+            }
+        }
+
+        List<BatchItemResult> results = new ArrayList<>(statuses.length);
+        for (int i = 0; i < statuses.length; i++) {
+            results.add(new BatchItemResult(i, statuses[i]));
+        }
+        return results;
+    }
+
+    private long countApplied(List<BatchItemResult> results) {
+        return results.stream().filter(result -> result.getStatus() == BatchStatus.APPLIED).count();
+    }
+
+    private void checkBatch(List<?> batch) {
+        if (batch == null || batch.size() > MAX_BATCH_SIZE) {
+            log.warn("Валидация не пройдена — неверный размер пакета");
+            throw new ValidationException("Пакет должен содержать не более " + MAX_BATCH_SIZE + " элементов");
+        }
+    }
+
+    private void checkPage(Long after, Integer limit) {
+        if (after == null || after < 0) {
+            log.warn("Валидация не пройдена — неверный курсор страницы: {}", after);
+            throw new ValidationException("Курсор страницы указан неверно");
+        } else if (limit == null || limit <= 0 || limit > MAX_PAGE_SIZE) {
+            log.warn("Валидация не пройдена — неверный размер страницы: {}", limit);
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
         }
-        log.info("Лайк фильму с id {}, удален.", filmId);
-        film.getLikes().remove(userId);
     }
 
     private void check(Film film) {
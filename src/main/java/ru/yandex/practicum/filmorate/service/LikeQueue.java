@@ -0,0 +1,176 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.QueueFullException;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// асинхронный приём одиночных лайков: запрос проверяет фильм и пользователя, ставит лайк в ограниченную очередь
+// и сразу получает 202. Фоновый поток забирает очередь пачками, схлопывает повторы одной пары
+// (остаётся последнее действие) и применяет пачку пакетными методами хранилища.
+// Заполненная очередь отвечает 503, а не растёт: клиент повторит запрос, память не кончится
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.likes.async.enabled", havingValue = "true")
+public class LikeQueue implements SmartLifecycle {
+    private static final long POLL_MILLIS = 100;
+    // ниже фаз веб-сервера (плавное завершение — DEFAULT_PHASE - 1024, остановка — DEFAULT_PHASE - 2048):
+    // очередь останавливается после того, как сервер дождался запросов и перестал принимать новые
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final FilmService filmService;
+    private final FilmStorage filmStorage;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final Timer lag;
+    private final Counter rejected;
+    private final Counter coalesced;
+    private volatile boolean running;
+    private volatile boolean stopped; //после остановки лайки не принимаются: применять их уже некому
+    private Thread worker;
+
+    public LikeQueue(FilmService filmService, FilmStorage filmStorage, MeterRegistry registry,
+                     @Value("${filmorate.likes.async.capacity:100000}") int capacity,
+                     @Value("${filmorate.likes.async.batch-size:5000}") int batchSize) {
+        this.filmService = filmService;
+        this.filmStorage = filmStorage;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        Gauge.builder("filmorate.likes.queue.depth", queue, BlockingQueue::size)
+                .description("Лайки, принятые, но ещё не применённые")
+                .register(registry);
+        lag = Timer.builder("filmorate.likes.queue.lag")
+                .description("Время от приёма лайка до применения пачки, в которой он оказался")
+                .publishPercentileHistogram()
+                .register(registry);
+        rejected = Counter.builder("filmorate.likes.queue.rejected")
+                .description("Лайки, отклонённые из-за заполненной очереди")
+                .register(registry);
+        coalesced = Counter.builder("filmorate.likes.queue.coalesced")
+                .description("Лайки, схлопнутые с более поздним действием той же пары")
+                .register(registry);
+    }
+
+    public void putLike(Long filmId, Long userId) {
+        offer(filmId, userId, true);
+    }
+
+    public void deleteLike(Long filmId, Long userId) {
+        offer(filmId, userId, false);
+    }
+
+    private void offer(Long filmId, Long userId, boolean liked) {
+        filmService.checkLike(filmId, userId);
+        if (stopped) {
+            throw stoppedException(filmId, userId);
+        }
+        Pending pending = new Pending(new FilmLike(filmId, userId), liked, System.nanoTime());
+        if (!queue.offer(pending)) {
+            rejected.increment();
+            log.warn("Очередь лайков заполнена, лайк фильму {} от пользователя {} отклонён", filmId, userId);
+            throw new QueueFullException("Очередь лайков заполнена");
+        }
+        // остановка могла начаться между проверкой и постановкой: если поток уже не забрал лайк, забираем его обратно
+        if (stopped && queue.remove(pending)) {
+            throw stoppedException(filmId, userId);
+        }
+    }
+
+    private QueueFullException stoppedException(Long filmId, Long userId) {
+        rejected.increment();
+        log.warn("Очередь лайков остановлена, лайк фильму {} от пользователя {} отклонён", filmId, userId);
+        return new QueueFullException("Очередь лайков остановлена");
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = new Thread(this::run, "like-queue");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // останавливается раньше уничтожения бинов, поэтому принятые лайки успевают попасть в хранилище и журнал
+    @Override
+    public void stop() {
+        stopped = true;
+        running = false;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Очередь лайков остановлена");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                apply(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Пачка из {} лайков не применена", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void apply(List<Pending> batch) {
+        // от повторов одной пары остаётся последнее действие: лайк и снятие идемпотентны,
+        // поэтому итог тот же, что и при применении всех по порядку
+        Map<FilmLike, Boolean> latest = new LinkedHashMap<>();
+        for (Pending pending : batch) {
+            latest.put(pending.like(), pending.liked());
+        }
+        coalesced.increment(batch.size() - latest.size());
+        List<FilmLike> puts = new ArrayList<>();
+        List<FilmLike> deletes = new ArrayList<>();
+        latest.forEach((like, liked) -> (liked ? puts : deletes).add(like));
+        if (!puts.isEmpty()) {
+            filmStorage.putLikes(puts);
+        }
+        if (!deletes.isEmpty()) {
+            filmStorage.deleteLikes(deletes);
+        }
+        lag.record(System.nanoTime() - batch.get(0).acceptedNanos(), TimeUnit.NANOSECONDS); //первый в пачке ждал дольше всех
+    }
+
+    record Pending(FilmLike like, boolean liked, long acceptedNanos) {
+    }
+}
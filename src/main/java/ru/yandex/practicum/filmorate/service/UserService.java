@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -7,24 +8,34 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.ConditionsNotMetException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchStatus;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.ImportResult;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongIntHashMap;
 
 import java.time.LocalDate;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
+@Timed(value = "filmorate.service", histogram = true)
 @RequiredArgsConstructor
 public class UserService {
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int IMPORT_BATCH_SIZE = 1000;
+    private static final int HUB_DEGREE = 5000; //друзья с большим числом друзей не раскрываются при обходе
+    private static final long FRIEND_EDGE_BUDGET = 200_000; //сколько связей второго уровня просматривается
 
     private final UserStorage userStorage;
 
     public User findUserById(Long id) {
-        log.info("Обработка GET-запроса на получение пользователя по id.");
+        log.debug("Обработка GET-запроса на получение пользователя по id.");
         if (!userStorage.checkId(id)) {
             throw new NotFoundException("Пользователь с id = " + id + " не найден");
         }
@@ -32,10 +43,16 @@ public class UserService {
     }
 
     public Collection<User> findAll() {
-        log.info("Получен GET-запрос на получение всех пользователей.");
+        log.debug("Получен GET-запрос на получение всех пользователей.");
         return userStorage.findAll();
     }
 
+    public Collection<User> findPage(Long after, Integer limit) {
+        log.debug("Получен GET-запрос на получение страницы пользователей после id = {}.", after);
+        checkPage(after, limit);
+        return userStorage.findPage(after, limit);
+    }
+
     public Collection<User> getFriends(Long id) {
         if (!userStorage.checkId(id)) {
             throw new NotFoundException("Пользователь с id = " + id + " не найден");
@@ -50,30 +67,81 @@ public class UserService {
         return friends;
     }
 
-    public Collection<User> getCommonFriends(Long userId, Long otherId) {
+    public long[] getFriendIds(Long id, Long after, Integer limit) {
+        if (!userStorage.checkId(id)) {
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+        checkPage(after, limit);
+        return userStorage.findFriendIds(id, after, limit);
+    }
+
+    public Collection<User> getCommonFriends(Long userId, Long otherId, Long offset, Long limit) {
         if (!userStorage.checkId(userId)) {
             throw new NotFoundException("Пользователь с id = " + userId + " не найден");
         }
         if (!userStorage.checkId(otherId)) {
             throw new NotFoundException("Пользователь с id = " + otherId + " не найден");
         }
+        if (offset < 0 || limit != null && limit < 0) {
+            log.warn("Валидация не пройдена — неверные параметры страницы: offset = {}, limit = {}", offset, limit);
+            throw new ValidationException("Параметры offset и limit не могут быть отрицательными");
+        }
 
-        Set<Long> userFriends = userStorage.findUserById(userId).getFriends();
-        Set<Long> otherUserFriends = userStorage.findUserById(otherId).getFriends();
-
-        Set<Long> commonFriendIds = new HashSet<>(userFriends);
-        commonFriendIds.retainAll(otherUserFriends);
+        long[] commonFriendIds = userStorage.findUserById(userId).getFriends()
+                .intersect(userStorage.findUserById(otherId).getFriends());
 
-        Collection<User> commonFriends = commonFriendIds.stream()
-                .map(userStorage::findUserById)
+        Collection<User> commonFriends = Arrays.stream(commonFriendIds)
+                .skip(offset)
+                .limit(limit == null ? Long.MAX_VALUE : limit)
+                .mapToObj(userStorage::findUserById)
                 .collect(Collectors.toList());
 
-        log.info("Общие друзья пользователей с id = {} и id = {}: {}", userId, otherId, commonFriends.size());
+        log.info("Общие друзья пользователей с id = {} и id = {}: {}", userId, otherId, commonFriendIds.length);
         return commonFriends;
     }
 
+    public List<User> getFriendSuggestions(Long id, Integer count) {
+        if (!userStorage.checkId(id)) {
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+        if (count == null || count <= 0 || count > MAX_PAGE_SIZE) {
+            log.warn("Валидация не пройдена — неверное количество предложений: {}", count);
+            throw new ValidationException("Количество предложений должно быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        LongHashSet friends = userStorage.findUserById(id).getFriends();
+
+        // обход в ширину на два уровня: раскрываются друзья, кандидатами становятся их друзья.
+        // Сначала раскрываются друзья с меньшим числом связей, а знаменитости не раскрываются вовсе:
+        // общий друг с миллионом друзей почти ничего не говорит о знакомстве, а бюджет съел бы целиком
+        long[][] adjacency = Arrays.stream(friends.sortedArray())
+                .mapToObj(userStorage::findFriendIds)
+                .filter(neighbours -> neighbours.length <= HUB_DEGREE)
+                .sorted(Comparator.comparingInt(neighbours -> neighbours.length))
+                .toArray(long[][]::new);
+        int expanded = 0;
+        long budget = FRIEND_EDGE_BUDGET;
+        while (expanded < adjacency.length && adjacency[expanded].length <= budget) {
+            budget -= adjacency[expanded++].length;
+        }
+        LongIntHashMap mutual = Arrays.stream(adjacency, 0, expanded).parallel()
+                .collect(LongIntHashMap::new, (counts, neighbours) -> {
+                    for (long candidate : neighbours) {
+                        if (candidate != id && !friends.contains(candidate)) {
+                            counts.add(candidate, 1);
+                        }
+                    }
+                }, LongIntHashMap::merge);
+
+        List<User> suggestions = Arrays.stream(mutual.topKeys(count))
+                .mapToObj(userStorage::findUserById)
+                .filter(Objects::nonNull)
+                .toList();
+        log.info("Предложено друзей пользователю с id = {}: {}", id, suggestions.size());
+        return suggestions;
+    }
+
     public User create(User user) {
-        log.info("Получен POST-запрос на создание пользователя: {}", user);
+        log.debug("Получен POST-запрос на создание пользователя: {}", user.getLogin());
         check(user);
 
         if (user.getName() == null || user.getName().isBlank()) {
@@ -84,8 +152,88 @@ public class UserService {
         return userStorage.create(user);
     }
 
+    public ImportResult importUsers(Iterator<User> users) {
+        log.debug("Получен POST-запрос на импорт пользователей.");
+        // элементы читаются по одному и сохраняются пачками, всё тело в памяти не собирается
+        ImportResult result = new ImportResult();
+        Map<String, Long> batch = new LinkedHashMap<>(); //email -> индекс элемента в теле
+        List<User> batchUsers = new ArrayList<>(IMPORT_BATCH_SIZE);
+        while (true) {
+            User user;
+            try {
+                if (!users.hasNext()) {
+                    break;
+                }
+                user = users.next();
+            } catch (ValidationException e) {
+                log.warn("Импорт пользователей прерван: {}", e.getMessage());
+                result.abort(e.getMessage());
+                break;
+            }
+            long index = result.getReceived();
+            result.setReceived(index + 1);
+            if (user == null) { //null в массиве
+                result.reject(index, "Пользователь не указан");
+                continue;
+            }
+            try {
+                checkEmailFormat(user);
+                checkProfile(user);
+            } catch (ValidationException e) {
+                result.reject(index, e.getMessage());
+                continue;
+            }
+            if (batch.putIfAbsent(user.getEmail(), index) != null) {
+                result.reject(index, "Этот имейл уже использутся");
+                continue;
+            }
+            if (user.getName() == null || user.getName().isBlank()) {
+                user.setName(user.getLogin());
+            }
+            batchUsers.add(user);
+            if (batchUsers.size() == IMPORT_BATCH_SIZE) {
+                importBatch(batch, batchUsers, result);
+                batch = new LinkedHashMap<>();
+                batchUsers = new ArrayList<>(IMPORT_BATCH_SIZE);
+            }
+        }
+        if (!batchUsers.isEmpty()) {
+            importBatch(batch, batchUsers, result);
+        }
+        log.info("Импорт пользователей завершён: сохранено {} из {}.", result.getImported(), result.getReceived());
+        return result;
+    }
+
+    private void importBatch(Map<String, Long> batch, List<User> batchUsers, ImportResult result) {
+        // занятые email проверяются одним запросом на пачку, а не по одному на пользователя
+        Set<String> taken = userStorage.findExistingEmails(batch.keySet());
+        List<User> fresh = new ArrayList<>(batchUsers.size());
+        for (User user : batchUsers) {
+            if (taken.contains(user.getEmail())) {
+                result.reject(batch.get(user.getEmail()), "Этот имейл уже использутся");
+            } else {
+                fresh.add(user);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+        List<User> created = userStorage.createAll(fresh);
+        result.setImported(result.getImported() + created.size());
+        if (created.size() < fresh.size()) {
+            // email успели занять параллельные запросы: хранилище вернуло только сохранённых
+            Set<User> saved = Collections.newSetFromMap(new IdentityHashMap<>());
+            saved.addAll(created);
+            for (User user : fresh) {
+                if (!saved.contains(user)) {
+                    result.reject(batch.get(user.getEmail()), "Этот имейл уже использутся");
+                }
+            }
+        }
+    }
+
     public User update(User newUser) {
-        log.info("Получен PUT-запрос на обновление пользователя: {}", newUser);
+        log.debug("Получен PUT-запрос на обновление пользователя с id = {}", newUser.getId());
 
         if (newUser.getId() == null) {
             log.warn("Обновление отклонено — ID не указан");
@@ -95,16 +243,20 @@ public class UserService {
         if (!userStorage.checkId(newUser.getId())) {
             throw new NotFoundException("Пользователь с id = " + newUser.getId() + " не найден");
         }
-        User user = userStorage.findUserById(newUser.getId());
+        User current = userStorage.findUserById(newUser.getId());
 
-        if (newUser.getEmail() != null && !newUser.getEmail().isBlank() && !newUser.getEmail().equals(user.getEmail())) {
-            if (userStorage.findAll().stream().anyMatch(anyUser -> anyUser.getEmail().equals(newUser.getEmail()))) {
+        if (newUser.getEmail() != null && !newUser.getEmail().isBlank() && !newUser.getEmail().equals(current.getEmail())) {
+            if (!userStorage.updateEmail(current.getId(), newUser.getEmail())) {
                 log.warn("Обновление отклонено — email {} уже используется", newUser.getEmail());
                 throw new ConditionsNotMetException("Этот имейл уже использутся");
             }
-            user.setEmail(newUser.getEmail());
         }
 
+        // остальные поля уходят в хранилище отдельным объектом, незаданные — null: хранилище накладывает их
+        // на текущего пользователя под своей блокировкой, живой объект не меняется
+        User user = new User();
+        user.setId(newUser.getId());
+
         if (newUser.getLogin() != null && !newUser.getLogin().isBlank()) {
             user.setLogin(newUser.getLogin());
         }
@@ -116,7 +268,7 @@ public class UserService {
         if (newUser.getBirthday() != null && !newUser.getBirthday().isAfter(LocalDate.now())) {
             user.setBirthday(newUser.getBirthday());
         }
-        return userStorage.update(newUser);
+        return userStorage.update(user);
     }
 
     public void putFriend(Long userId, Long friendId) {
@@ -128,14 +280,61 @@ public class UserService {
             throw new NotFoundException("Пользователь с id = " + friendId + " не найден");
         }
 
-        User user = userStorage.findUserById(userId);
-        User friend = userStorage.findUserById(friendId);
-
-        user.getFriends().add(friendId);
-        friend.getFriends().add(userId);
+        userStorage.putFriend(userId, friendId);
         log.info("Пользователь с ID = {} добавил в друзья пользователя с ID = {}", userId, friendId);
     }
 
+    public List<BatchItemResult> putFriends(List<Friendship> friendships) {
+        log.debug("Получен пакетный PUT-запрос на добавление в друзья.");
+        if (friendships == null || friendships.size() > MAX_BATCH_SIZE) {
+            log.warn("Валидация не пройдена — неверный размер пакета");
+            throw new ValidationException("Пакет должен содержать не более " + MAX_BATCH_SIZE + " элементов");
+        }
+        // существование проверяется один раз на каждый различный id пакета
+        Set<Long> ids = new HashSet<>();
+        for (Friendship friendship : friendships) {
+            if (friendship != null) {
+                ids.add(friendship.getUserId());
+                ids.add(friendship.getFriendId());
+            }
+        }
+        ids.remove(null);
+        Set<Long> existing = userStorage.findExistingIds(ids);
+
+        BatchStatus[] statuses = new BatchStatus[friendships.size()];
+        List<Friendship> valid = new ArrayList<>(friendships.size());
+        int[] positions = new int[friendships.size()];
+        for (int i = 0; i < statuses.length; i++) {
+            Friendship friendship = friendships.get(i);
+            if (friendship == null || friendship.getUserId() == null || friendship.getFriendId() == null
+                    || friendship.getUserId().equals(friendship.getFriendId())) {
+                statuses[i] = BatchStatus.INVALID;
+            } else if (!existing.contains(friendship.getUserId())) {
+                statuses[i] = BatchStatus.USER_NOT_FOUND;
+            } else if (!existing.contains(friendship.getFriendId())) {
+                statuses[i] = BatchStatus.FRIEND_NOT_FOUND;
+            } else {
+                positions[valid.size()] = i;
+                valid.add(friendship);
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            boolean[] applied = userStorage.putFriends(valid);
+            for (int j = 0; j < applied.length; j++) {
+                statuses[positions[j]] = applied[j] ? BatchStatus.APPLIED : BatchStatus.UNCHANGED;
+            }
+        }
+
+        List<BatchItemResult> results = new ArrayList<>(statuses.length);
+        for (int i = 0; i < statuses.length; i++) {
+            results.add(new BatchItemResult(i, statuses[i]));
+        }
+        log.info("Пакет дружб обработан: добавлено {} из {}.",
+                results.stream().filter(result -> result.getStatus() == BatchStatus.APPLIED).count(), results.size());
+        return results;
+    }
+
     public void deleteFriend(Long userId, Long friendId) {
         if (!userStorage.checkId(userId)) {
             throw new NotFoundException("Пользователь с id = " + userId + " не найден");
@@ -145,22 +344,38 @@ public class UserService {
             throw new NotFoundException("Пользователь с id = " + friendId + " не найден");
         }
 
-        User user = userStorage.findUserById(userId);
-        User friend = userStorage.findUserById(friendId);
-
-        user.getFriends().remove(friendId);
-        friend.getFriends().remove(userId);
+        userStorage.deleteFriend(userId, friendId);
         log.info("Пользователь с ID = {} удалил из друзей пользователя с ID = {}", userId, friendId);
     }
 
+    private void checkPage(Long after, Integer limit) {
+        if (after == null || after < 0) {
+            log.warn("Валидация не пройдена — неверный курсор страницы: {}", after);
+            throw new ValidationException("Курсор страницы указан неверно");
+        } else if (limit == null || limit <= 0 || limit > MAX_PAGE_SIZE) {
+            log.warn("Валидация не пройдена — неверный размер страницы: {}", limit);
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+    }
+
     private void check(User newUser) {
+        checkEmailFormat(newUser);
+        if (userStorage.checkEmail(newUser.getEmail())) {
+            log.warn("Валидация не пройдена — email уже используется: {}", newUser.getEmail());
+            throw new ValidationException("Этот имейл уже использутся");
+        }
+        checkProfile(newUser);
+    }
+
+    private void checkEmailFormat(User newUser) {
         if (newUser.getEmail() == null || newUser.getEmail().isBlank() || !newUser.getEmail().contains("@")) {
             log.warn("Валидация не пройдена — некорректный email: {}", newUser.getEmail());
             throw new ValidationException("Имейл указан неверно");
-        } else if (userStorage.findAll().stream().anyMatch(user -> user.getEmail().equals(newUser.getEmail()))) {
-            log.warn("Валидация не пройдена — email уже используется: {}", newUser.getEmail());
-            throw new ValidationException("Этот имейл уже использутся");
-        } else if (newUser.getLogin() == null || newUser.getLogin().isBlank()) {
+        }
+    }
+
+    private void checkProfile(User newUser) {
+        if (newUser.getLogin() == null || newUser.getLogin().isBlank()) {
             log.warn("Валидация не пройдена — логин отсутствует");
             throw new ValidationException("Логин указан неверно");
         } else if (newUser.getBirthday() == null || newUser.getBirthday().isAfter(LocalDate.now())) {
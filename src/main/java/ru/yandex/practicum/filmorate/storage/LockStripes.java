@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class LockStripes { //набор блокировок, разделённых по id, вместо одной глобальной
+    private final Lock[] locks;
+    private final int mask;
+
+    public LockStripes(int stripes) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1; //степень двойки не меньше stripes
+        locks = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public Lock forId(long id) {
+        return locks[stripe(id)];
+    }
+
+    public int stripe(long id) { //номер полосы: данные, разложенные по полосам, меняются под её блокировкой
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    public Lock forStripe(int stripe) {
+        return locks[stripe];
+    }
+
+    public int size() {
+        return locks.length;
+    }
+}
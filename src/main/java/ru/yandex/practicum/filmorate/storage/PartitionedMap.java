@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// сущности по id, разложенные по независимым частям: часть совпадает с полосой LockStripes и меняется
+// под её блокировкой. Каждая часть растёт и перестраивается отдельно, поэтому большой каталог
+// не держит одну огромную таблицу, которую сборщик мусора и рост копируют целиком
+public class PartitionedMap<V> {
+    private final LockStripes locks;
+    private final Map<Long, V>[] parts;
+
+    @SuppressWarnings("unchecked")
+    public PartitionedMap(LockStripes locks) {
+        this.locks = locks;
+        parts = new Map[locks.size()];
+        for (int part = 0; part < parts.length; part++) {
+            parts[part] = new ConcurrentHashMap<>();
+        }
+    }
+
+    public V get(long id) {
+        return part(id).get(id);
+    }
+
+    public void put(long id, V value) {
+        part(id).put(id, value);
+    }
+
+    public V putIfAbsent(long id, V value) {
+        return part(id).putIfAbsent(id, value);
+    }
+
+    public V computeIfAbsent(long id, Function<Long, V> mapping) {
+        return part(id).computeIfAbsent(id, mapping);
+    }
+
+    public boolean containsKey(long id) {
+        return part(id).containsKey(id);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<Long, V> part : parts) {
+            size += part.size();
+        }
+        return size;
+    }
+
+    public Collection<V> values() { //представление всех частей подряд, без копирования
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new Iterator<>() {
+                    private int part;
+                    private Iterator<V> current = parts[0].values().iterator();
+
+                    @Override
+                    public boolean hasNext() {
+                        while (!current.hasNext() && part < parts.length - 1) {
+                            current = parts[++part].values().iterator();
+                        }
+                        return current.hasNext();
+                    }
+
+                    @Override
+                    public V next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return current.next();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return PartitionedMap.this.size();
+            }
+        };
+    }
+
+    private Map<Long, V> part(long id) {
+        return parts[locks.stripe(id)];
+    }
+}
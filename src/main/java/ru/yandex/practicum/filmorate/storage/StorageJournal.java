@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+public interface StorageJournal { //журнал изменений хранилищ в памяти, по умолчанию ничего не пишет
+    StorageJournal NOOP = new StorageJournal() {
+    };
+
+    // методы записи вызываются под блокировкой изменяемой сущности уже после изменения,
+    // поэтому порядок записей в журнале совпадает с порядком изменений; возвращают номер записи
+    default long filmCreated(Film film) {
+        return 0;
+    }
+
+    default long filmUpdated(Film film) {
+        return 0;
+    }
+
+    default long likeAdded(long filmId, long userId) {
+        return 0;
+    }
+
+    default long likeRemoved(long filmId, long userId) {
+        return 0;
+    }
+
+    default long userCreated(User user) {
+        return 0;
+    }
+
+    default long userUpdated(User user) {
+        return 0;
+    }
+
+    default long friendAdded(long userId, long friendId) {
+        return 0;
+    }
+
+    default long friendRemoved(long userId, long friendId) {
+        return 0;
+    }
+
+    // вызывается уже без блокировок: ждёт, пока запись с этим номером станет надёжной по политике fsync
+    default void sync(long position) {
+    }
+}
@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.TrendWindow;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+@RequiredArgsConstructor
+public class CachingFilmStorage implements FilmStorage { //кэш поиска фильма по id поверх любого FilmStorage
+    @Getter
+    private final FilmStorage delegate;
+    @Getter
+    private final Cache<Long, Film> cache;
+
+    @Override
+    public Film findFilmById(Long id) {
+        return cache.get(id, delegate::findFilmById);
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Collection<Film> findPage(Long afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Collection<Film> findPopular(Long count) {
+        return delegate.findPopular(count);
+    }
+
+    @Override
+    public Collection<Film> findPopularByYear(int year, Long count) {
+        return delegate.findPopularByYear(year, count);
+    }
+
+    @Override
+    public Collection<Film> findTrending(TrendWindow window, Long count) {
+        return delegate.findTrending(window, count);
+    }
+
+    @Override
+    public Film create(Film film) {
+        return delegate.create(film);
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        return delegate.createAll(films);
+    }
+
+    @Override
+    public Film update(Film film) {
+        try {
+            return delegate.update(film);
+        } finally {
+            cache.invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public boolean putLike(Long filmId, Long userId) {
+        try {
+            return delegate.putLike(filmId, userId);
+        } finally {
+            cache.invalidate(filmId);
+        }
+    }
+
+    @Override
+    public boolean deleteLike(Long filmId, Long userId) {
+        try {
+            return delegate.deleteLike(filmId, userId);
+        } finally {
+            cache.invalidate(filmId);
+        }
+    }
+
+    @Override
+    public boolean[] putLikes(List<FilmLike> likes) {
+        try {
+            return delegate.putLikes(likes);
+        } finally {
+            cache.invalidateAll(likes.stream().map(FilmLike::getFilmId).toList());
+        }
+    }
+
+    @Override
+    public boolean[] deleteLikes(List<FilmLike> likes) {
+        try {
+            return delegate.deleteLikes(likes);
+        } finally {
+            cache.invalidateAll(likes.stream().map(FilmLike::getFilmId).toList());
+        }
+    }
+
+    @Override
+    public boolean checkId(Long id) {
+        return cache.getIfPresent(id) != null || delegate.checkId(id);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return delegate.findExistingIds(ids);
+    }
+
+    @Override
+    public long[] findLikedFilmIds(Long userId) {
+        return delegate.findLikedFilmIds(userId);
+    }
+
+    // лайки берутся из закэшированного фильма: он сбрасывается при каждом изменении лайков
+    @Override
+    public long[] findLikeIds(Long filmId, long afterUserId, int limit) {
+        Film film = findFilmById(filmId);
+        return film == null ? new long[0] : film.getLikes().sortedPage(afterUserId, limit);
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public long countLikes() {
+        return delegate.countLikes();
+    }
+
+    @Override
+    public long currentVersion() {
+        return delegate.currentVersion();
+    }
+}
@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class CachingUserStorage implements UserStorage { //кэш поиска пользователя по id поверх любого UserStorage
+    @Getter
+    private final UserStorage delegate;
+    @Getter
+    private final Cache<Long, User> cache;
+
+    @Override
+    public User findUserById(Long id) {
+        return cache.get(id, delegate::findUserById);
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Collection<User> findPage(Long afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public User create(User user) {
+        return delegate.create(user);
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        return delegate.createAll(users);
+    }
+
+    @Override
+    public User update(User user) {
+        try {
+            return delegate.update(user);
+        } finally {
+            cache.invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public boolean updateEmail(Long userId, String email) {
+        try {
+            return delegate.updateEmail(userId, email);
+        } finally {
+            cache.invalidate(userId);
+        }
+    }
+
+    @Override
+    public void putFriend(Long userId, Long friendId) {
+        try {
+            delegate.putFriend(userId, friendId);
+        } finally {
+            cache.invalidateAll(List.of(userId, friendId));
+        }
+    }
+
+    @Override
+    public boolean[] putFriends(List<Friendship> friendships) {
+        try {
+            return delegate.putFriends(friendships);
+        } finally {
+            cache.invalidateAll(friendships.stream()
+                    .flatMap(friendship -> Stream.of(friendship.getUserId(), friendship.getFriendId()))
+                    .toList());
+        }
+    }
+
+    @Override
+    public void deleteFriend(Long userId, Long friendId) {
+        try {
+            delegate.deleteFriend(userId, friendId);
+        } finally {
+            cache.invalidateAll(List.of(userId, friendId));
+        }
+    }
+
+    @Override
+    public boolean checkId(Long id) {
+        return cache.getIfPresent(id) != null || delegate.checkId(id);
+    }
+
+    // друзья берутся из закэшированного пользователя: он сбрасывается при каждом изменении дружбы
+    @Override
+    public long[] findFriendIds(Long userId) {
+        User user = findUserById(userId);
+        return user == null ? new long[0] : user.getFriends().sortedArray();
+    }
+
+    @Override
+    public long[] findFriendIds(Long userId, long afterId, int limit) {
+        User user = findUserById(userId);
+        return user == null ? new long[0] : user.getFriends().sortedPage(afterId, limit);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return delegate.findExistingIds(ids);
+    }
+
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        return delegate.findExistingEmails(emails);
+    }
+
+    @Override
+    public boolean checkEmail(String email) {
+        return delegate.checkEmail(email);
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+}
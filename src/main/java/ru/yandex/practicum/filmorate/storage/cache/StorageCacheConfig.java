@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+@Configuration
+@ConditionalOnProperty(name = "filmorate.storage.cache.enabled", havingValue = "true")
+public class StorageCacheConfig { //оборачивает выбранные профилем хранилища в кэш, если он включён
+
+    @Bean
+    static BeanPostProcessor storageCachePostProcessor(Environment environment) {
+        long maximumSize = environment.getProperty("filmorate.storage.cache.maximum-size", Long.class, 100_000L);
+        Duration ttl = environment.getProperty("filmorate.storage.cache.ttl", Duration.class, Duration.ofMinutes(10));
+        boolean virtualThreads = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof FilmStorage filmStorage && !(bean instanceof CachingFilmStorage)) {
+                    return new CachingFilmStorage(filmStorage, newCache(maximumSize, ttl, virtualThreads));
+                }
+                if (bean instanceof UserStorage userStorage && !(bean instanceof CachingUserStorage)) {
+                    return new CachingUserStorage(userStorage, newCache(maximumSize, ttl, virtualThreads));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    MeterBinder storageCacheMetrics(FilmStorage filmStorage, UserStorage userStorage) {
+        // попадания, промахи и вытеснения: cache.gets{result=hit|miss}, cache.evictions
+        return registry -> {
+            if (filmStorage instanceof CachingFilmStorage caching) {
+                CaffeineCacheMetrics.monitor(registry, caching.getCache(), "films");
+            }
+            if (userStorage instanceof CachingUserStorage caching) {
+                CaffeineCacheMetrics.monitor(registry, caching.getCache(), "users");
+            }
+        };
+    }
+
+    private static <V> Cache<Long, V> newCache(long maximumSize, Duration ttl, boolean virtualThreads) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats();
+        if (virtualThreads) {
+            // синхронный кэш грузит промах внутри synchronized-секции ConcurrentHashMap, и виртуальный поток
+            // вместе с ждущими тот же ключ остаётся прикреплён к носителю на весь запрос к базе;
+            // асинхронный держит секцию только на время установки future, а загрузка идёт в отдельном виртуальном потоке
+            return builder.executor(Executors.newVirtualThreadPerTaskExecutor()).<Long, V>buildAsync().synchronous();
+        }
+        return builder.build();
+    }
+}
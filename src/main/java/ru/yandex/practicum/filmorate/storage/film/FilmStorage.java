@@ -1,8 +1,12 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.TrendWindow;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 public interface FilmStorage {
 
@@ -10,11 +14,39 @@ public interface FilmStorage {
 
     Collection<Film> findAll();
 
+    Collection<Film> findPage(Long afterId, int limit);
+
     Collection<Film> findPopular(Long count);
 
+    Collection<Film> findPopularByYear(int year, Long count);
+
+    Collection<Film> findTrending(TrendWindow window, Long count);
+
     Film create(Film film);
 
-    Film update(Film film);
+    List<Film> createAll(List<Film> films);
+
+    Film update(Film film); //поля, равные null, остаются прежними; лайки не меняются, возвращается итоговый фильм
+
+    boolean putLike(Long filmId, Long userId);
+
+    boolean deleteLike(Long filmId, Long userId);
+
+    boolean[] putLikes(List<FilmLike> likes);
+
+    boolean[] deleteLikes(List<FilmLike> likes);
 
     boolean checkId(Long id);
+
+    Set<Long> findExistingIds(Collection<Long> ids);
+
+    long[] findLikedFilmIds(Long userId);
+
+    long[] findLikeIds(Long filmId, long afterUserId, int limit); //страница id лайкнувших по возрастанию
+
+    long count();
+
+    long countLikes();
+
+    long currentVersion(); //последняя выданная версия фильма: растёт при любом изменении любого фильма
 }
\ No newline at end of file
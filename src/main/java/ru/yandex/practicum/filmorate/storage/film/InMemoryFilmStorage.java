@@ -1,58 +1,477 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.TrendWindow;
+import ru.yandex.practicum.filmorate.storage.LockStripes;
+import ru.yandex.practicum.filmorate.storage.PartitionedMap;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.snapshot.MappedSnapshot;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 
 @Slf4j
 @Component
+@Profile("!db")
 public class InMemoryFilmStorage implements FilmStorage { //логика хранения
-    private final Map<Long, Film> films = new HashMap<>();
-    private Long sequence = 0L;
+    static final int DEFAULT_PARTITIONS = 64;
+
+    // фильмы и рейтинг разложены по частям, совпадающим с полосами блокировок
+    private final LockStripes locks;
+    private final PartitionedMap<Film> films;
+    private final PopularityIndex popularity;
+    private final Map<Long, LongHashSet> likedFilms = new ConcurrentHashMap<>(); //user id -> фильмы с его лайком
+    private final YearLeaderboards yearBoards;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong likesCount = new AtomicLong();
+    // версии отсчитываются от времени запуска, поэтому после перезапуска не повторяют выданные раньше
+    private final long epoch = System.currentTimeMillis() * 1000;
+    private final AtomicLong versions = new AtomicLong(epoch);
+    private volatile StorageJournal journal = StorageJournal.NOOP;
+    // снимок, отображённый в память при старте: фильм переносится из него в кучу при первом обращении,
+    // остальные — фоновой загрузкой, после которой снимок отпускается
+    private volatile MappedSnapshot snapshot;
+    private final AtomicInteger unloaded = new AtomicInteger();
+    // лайки за последние сутки и неделю; состояние не попадает в журнал и после перезапуска набирается заново
+    private final Map<TrendWindow, TrendingIndex> trending = new EnumMap<>(TrendWindow.class);
+
+    public InMemoryFilmStorage() {
+        this(DEFAULT_PARTITIONS);
+    }
+
+    @Autowired
+    public InMemoryFilmStorage(@Value("${filmorate.storage.partitions:64}") int partitions) {
+        locks = new LockStripes(partitions);
+        films = new PartitionedMap<>(locks);
+        popularity = new PopularityIndex(locks);
+        yearBoards = new YearLeaderboards(locks);
+        long now = System.currentTimeMillis();
+        for (TrendWindow window : TrendWindow.values()) {
+            trending.put(window, new TrendingIndex(window, locks, now));
+        }
+    }
 
     private Long getSequence() {
-        return ++sequence;
+        return sequence.incrementAndGet();
+    }
+
+    public void setJournal(StorageJournal journal) {
+        this.journal = journal;
+    }
+
+    public void attachSnapshot(MappedSnapshot snapshot) {
+        sequence.accumulateAndGet(snapshot.maxFilmId(), Math::max);
+        likesCount.addAndGet(snapshot.likesCount());
+        unloaded.set(snapshot.filmCount());
+        this.snapshot = snapshot;
+    }
+
+    // переносит в кучу все фильмы снимка; можно вызывать из нескольких потоков одновременно
+    public void loadSnapshot() {
+        MappedSnapshot snapshot = this.snapshot;
+        if (snapshot == null) {
+            return;
+        }
+        for (int index = 0; index < snapshot.filmCount(); index++) {
+            long id = snapshot.filmId(index);
+            Lock lock = locks.forId(id);
+            lock.lock();
+            try {
+                // рейтинг строится по текущему числу лайков: если лайк уже успел переместить фильм,
+                // добавляется та же запись и ничего не меняется
+                Film film = film(id);
+                popularity.add(id, film.getLikes().size());
+                yearBoards.place(id, film.getReleaseDate(), film.getLikes().size());
+                for (long userId : film.getLikes().toLongArray()) {
+                    indexLike(id, userId, true);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        this.snapshot = null;
     }
 
     @Override
     public Film findFilmById(Long id) {
-        log.info("Фильм предоставлен");
-        return films.get(id);
+        log.debug("Фильм предоставлен");
+        return film(id);
     }
 
     @Override
     public Collection<Film> findAll() {
-        log.info("Список предоставлен. Текущее количество: {}", films.size());
+        loadSnapshot();
+        log.debug("Список предоставлен. Текущее количество: {}", films.size());
         return films.values();
     }
 
+    @Override
+    public Collection<Film> findPage(Long afterId, int limit) {
+        // id выдаются подряд и не удаляются, поэтому страница собирается обходом id без сортировки всего каталога
+        List<Film> page = new ArrayList<>(Math.min(limit, films.size()));
+        for (long id = afterId + 1; id <= sequence.get() && page.size() < limit; id++) {
+            Film film = film(id);
+            if (film != null) {
+                page.add(film);
+            }
+        }
+        return page;
+    }
+
     @Override
     public Collection<Film> findPopular(Long count) {
-        return films.values().stream()
-                .sorted(Comparator.comparingInt((Film film) -> film.getLikes().size()).reversed())
-                .limit(count)
-                .collect(Collectors.toList());
+        loadSnapshot();
+        return popularity.top(count).stream()
+                .map(films::get)
+                .toList();
+    }
+
+    @Override
+    public Collection<Film> findPopularByYear(int year, Long count) {
+        loadSnapshot();
+        return yearBoards.top(year, count).stream()
+                .map(films::get)
+                .toList();
+    }
+
+    @Override
+    public Collection<Film> findTrending(TrendWindow window, Long count) {
+        return trending.get(window).top(count).stream()
+                .map(this::film)
+                .toList();
+    }
+
+    public void rollTrending(long nowMillis) { //вычитает из окон корзины, которые из них вышли
+        for (TrendingIndex index : trending.values()) {
+            index.roll(nowMillis);
+        }
     }
 
     @Override
     public Film create(Film film) {
-        film.setId(getSequence());
-        films.put(film.getId(), film);
+        journal.sync(store(film));
         log.info("Фильм успешно добавлен с ID = {}", film.getId());
         return film;
     }
 
     @Override
-    public Film update(Film film) {
-        films.put(film.getId(), film);
+    public List<Film> createAll(List<Film> films) {
+        long position = 0;
+        for (Film film : films) {
+            position = store(film);
+        }
+        journal.sync(position); //весь пакет ждёт одного сброса журнала
+        log.info("Добавлено фильмов: {}", films.size());
+        return films;
+    }
+
+    private long store(Film film) {
+        film.setId(getSequence());
+        Lock lock = locks.forId(film.getId());
+        lock.lock();
+        try {
+            film.setVersion(versions.incrementAndGet());
+            films.put(film.getId(), film);
+            popularity.add(film.getId(), film.getLikes().size());
+            yearBoards.place(film.getId(), film.getReleaseDate(), film.getLikes().size());
+            likesCount.addAndGet(film.getLikes().size());
+            reindexLikes(film.getId(), null, film);
+            return journal.filmCreated(film);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Film update(Film changes) {
+        long position;
+        Film film;
+        Lock lock = locks.forId(changes.getId());
+        lock.lock();
+        try {
+            // новый объект вместо правки хранимого: читатели без блокировки видят фильм целиком старым или новым,
+            // и версия всегда соответствует его полям
+            Film oldFilm = film(changes.getId());
+            film = merge(oldFilm, changes);
+            film.setVersion(versions.incrementAndGet());
+            films.put(film.getId(), film);
+            yearBoards.place(film.getId(), film.getReleaseDate(), film.getLikes().size());
+            position = journal.filmUpdated(film);
+        } finally {
+            lock.unlock();
+        }
+        journal.sync(position);
         log.info("Фильм с ID = {} обновлён", film.getId());
         return film;
     }
 
+    private static Film merge(Film oldFilm, Film changes) { //вызывается под блокировкой фильма
+        if (oldFilm == null) {
+            return changes;
+        }
+        Film film = new Film();
+        film.setId(oldFilm.getId());
+        film.setName(changes.getName() != null ? changes.getName() : oldFilm.getName());
+        film.setDescription(changes.getDescription() != null ? changes.getDescription() : oldFilm.getDescription());
+        film.setReleaseDate(changes.getReleaseDate() != null ? changes.getReleaseDate() : oldFilm.getReleaseDate());
+        film.setDuration(changes.getDuration() != null ? changes.getDuration() : oldFilm.getDuration());
+        film.getLikes().addAll(oldFilm.getLikes());
+        return film;
+    }
+
+    @Override
+    public boolean putLike(Long filmId, Long userId) {
+        long position = like(filmId, userId, true, true);
+        journal.sync(position);
+        return position >= 0;
+    }
+
+    @Override
+    public boolean deleteLike(Long filmId, Long userId) {
+        long position = like(filmId, userId, false, true);
+        journal.sync(position);
+        return position >= 0;
+    }
+
+    @Override
+    public boolean[] putLikes(List<FilmLike> likes) {
+        return likeAll(likes, true);
+    }
+
+    @Override
+    public boolean[] deleteLikes(List<FilmLike> likes) {
+        return likeAll(likes, false);
+    }
+
+    private boolean[] likeAll(List<FilmLike> likes, boolean liked) {
+        // лайки группируются по фильму: на «горячий» фильм блокировка берётся, а рейтинги и версия
+        // сдвигаются один раз за пакет, а не на каждый лайк
+        Map<Long, List<Integer>> byFilm = new LinkedHashMap<>();
+        for (int i = 0; i < likes.size(); i++) {
+            byFilm.computeIfAbsent(likes.get(i).getFilmId(), id -> new ArrayList<>()).add(i);
+        }
+        boolean[] applied = new boolean[likes.size()];
+        long last = 0;
+        for (Map.Entry<Long, List<Integer>> group : byFilm.entrySet()) {
+            last = Math.max(last, likeFilm(group.getKey(), group.getValue(), likes, liked, applied));
+        }
+        journal.sync(last); //весь пакет ждёт одного сброса журнала
+        return applied;
+    }
+
+    // возвращает номер последней записи журнала по фильму или 0, если ничего не изменилось
+    private long likeFilm(long filmId, List<Integer> indexes, List<FilmLike> likes, boolean liked, boolean[] applied) {
+        Lock lock = locks.forId(filmId);
+        lock.lock();
+        try {
+            Film film = film(filmId);
+            if (film == null) {
+                return 0;
+            }
+            int before = film.getLikes().size();
+            long position = 0;
+            Map<TrendWindow, Integer> trendDeltas = new EnumMap<>(TrendWindow.class);
+            for (int index : indexes) {
+                long userId = likes.get(index).getUserId();
+                if (liked ? film.getLikes().add(userId) : film.getLikes().remove(userId)) {
+                    applied[index] = true;
+                    indexLike(filmId, userId, liked);
+                    trending.forEach((window, trend) ->
+                            trendDeltas.merge(window, trend.record(filmId, userId, liked), Integer::sum));
+                    position = liked ? journal.likeAdded(filmId, userId) : journal.likeRemoved(filmId, userId);
+                }
+            }
+            int after = film.getLikes().size();
+            if (after != before) {
+                film.setVersion(versions.incrementAndGet());
+                popularity.move(filmId, before, after);
+                yearBoards.move(filmId, before, after);
+                likesCount.addAndGet(after - before);
+                trendDeltas.forEach((window, delta) -> trending.get(window).add(filmId, delta));
+            }
+            return position;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // возвращает номер записи журнала или -1, если лайк уже был (или его не было)
+    private long like(long filmId, long userId, boolean liked, boolean journaled) {
+        Lock lock = locks.forId(filmId);
+        lock.lock();
+        try {
+            Film film = film(filmId);
+            int likes = film.getLikes().size();
+            if (liked ? !film.getLikes().add(userId) : !film.getLikes().remove(userId)) {
+                return -1;
+            }
+            film.setVersion(versions.incrementAndGet());
+            popularity.move(filmId, likes, liked ? likes + 1 : likes - 1);
+            yearBoards.move(filmId, likes, liked ? likes + 1 : likes - 1);
+            likesCount.addAndGet(liked ? 1 : -1);
+            indexLike(filmId, userId, liked);
+            if (!journaled) {
+                return 0; //доигрывание журнала не считается свежими лайками
+            }
+            for (TrendingIndex index : trending.values()) {
+                index.add(filmId, index.record(filmId, userId, liked));
+            }
+            return liked ? journal.likeAdded(filmId, userId) : journal.likeRemoved(filmId, userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // восстановление из снимка и журнала: изменения применяются без повторной записи в журнал
+    // и повторяемы, поэтому запись, уже отражённая в снимке, применяется ещё раз без вреда
+
+    public void restoreFilm(Film film) { //заменяет фильм целиком вместе с лайками
+        Lock lock = locks.forId(film.getId());
+        lock.lock();
+        try {
+            Film oldFilm = film(film.getId());
+            film.setVersion(versions.incrementAndGet());
+            films.put(film.getId(), film);
+            if (oldFilm == null) {
+                popularity.add(film.getId(), film.getLikes().size());
+                likesCount.addAndGet(film.getLikes().size());
+            } else if (oldFilm.getLikes().size() != film.getLikes().size()) {
+                popularity.move(film.getId(), oldFilm.getLikes().size(), film.getLikes().size());
+                yearBoards.move(film.getId(), oldFilm.getLikes().size(), film.getLikes().size());
+                likesCount.addAndGet(film.getLikes().size() - oldFilm.getLikes().size());
+            }
+            yearBoards.place(film.getId(), film.getReleaseDate(), film.getLikes().size());
+            reindexLikes(film.getId(), oldFilm, film);
+        } finally {
+            lock.unlock();
+        }
+        sequence.accumulateAndGet(film.getId(), Math::max);
+    }
+
+    public void restoreFilmFields(Film update) { //обновляет поля фильма, не трогая лайки
+        Film film = film(update.getId());
+        if (film == null) {
+            restoreFilm(update);
+            return;
+        }
+        Lock lock = locks.forId(film.getId());
+        lock.lock();
+        try {
+            film.setName(update.getName());
+            film.setDescription(update.getDescription());
+            film.setReleaseDate(update.getReleaseDate());
+            film.setDuration(update.getDuration());
+            film.setVersion(versions.incrementAndGet());
+            yearBoards.place(film.getId(), film.getReleaseDate(), film.getLikes().size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void restoreLike(long filmId, long userId, boolean liked) {
+        if (exists(filmId)) {
+            like(filmId, userId, liked, false);
+        }
+    }
+
     public boolean checkId(Long id) {
-        return films.containsKey(id);
+        return exists(id);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        for (Long id : ids) {
+            if (exists(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public long[] findLikedFilmIds(Long userId) {
+        loadSnapshot();
+        LongHashSet filmIds = likedFilms.get(userId);
+        return filmIds == null ? new long[0] : filmIds.toLongArray();
+    }
+
+    @Override
+    public long[] findLikeIds(Long filmId, long afterUserId, int limit) {
+        Film film = film(filmId);
+        return film == null ? new long[0] : film.getLikes().sortedPage(afterUserId, limit);
+    }
+
+    @Override
+    public long count() {
+        return films.size() + unloaded.get();
+    }
+
+    @Override
+    public long countLikes() {
+        return likesCount.get();
+    }
+
+    @Override
+    public long currentVersion() {
+        return versions.get();
+    }
+
+    private Film film(long id) { //фильм из кучи, а пока снимок не загружен целиком — из снимка
+        Film film = films.get(id);
+        MappedSnapshot snapshot = this.snapshot;
+        if (film != null || snapshot == null) {
+            return film;
+        }
+        int index = snapshot.filmIndex(id);
+        if (index < 0) {
+            return null;
+        }
+        return films.computeIfAbsent(id, key -> {
+            unloaded.decrementAndGet();
+            Film loaded = snapshot.film(index);
+            loaded.setVersion(epoch); //фильмы снимка не менялись с запуска
+            return loaded;
+        });
+    }
+
+    // обратный индекс лайков меняется под блокировкой фильма вместе с его лайками
+    private void indexLike(long filmId, long userId, boolean liked) {
+        if (liked) {
+            likedFilms.computeIfAbsent(userId, id -> new LongHashSet()).add(filmId);
+        } else {
+            LongHashSet filmIds = likedFilms.get(userId);
+            if (filmIds != null) {
+                filmIds.remove(filmId);
+            }
+        }
+    }
+
+    private void reindexLikes(long filmId, Film oldFilm, Film film) {
+        if (oldFilm != null) {
+            for (long userId : oldFilm.getLikes().toLongArray()) {
+                if (!film.getLikes().contains(userId)) {
+                    indexLike(filmId, userId, false);
+                }
+            }
+        }
+        for (long userId : film.getLikes().toLongArray()) {
+            indexLike(filmId, userId, true);
+        }
+    }
+
+    private boolean exists(long id) {
+        MappedSnapshot snapshot = this.snapshot;
+        return films.containsKey(id) || snapshot != null && snapshot.filmIndex(id) >= 0;
     }
-}
\ No newline at end of file
+}
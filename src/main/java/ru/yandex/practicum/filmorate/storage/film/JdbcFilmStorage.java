@@ -0,0 +1,280 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSourceUtils;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.TrendWindow;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+
+@Slf4j
+@Component
+@Profile("db")
+public class JdbcFilmStorage implements FilmStorage { //хранение во встроенной базе H2
+    private static final String SELECT_FILMS = "SELECT id, name, description, release_date, duration, version FROM films";
+    private static final String INSERT_LIKE = "INSERT INTO likes (film_id, user_id) SELECT :filmId, :userId "
+            + "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = :filmId AND user_id = :userId)";
+    private static final String DELETE_LIKE = "DELETE FROM likes WHERE film_id = :filmId AND user_id = :userId";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final SimpleJdbcInsert filmInsert;
+
+    public JdbcFilmStorage(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.filmInsert = new SimpleJdbcInsert(jdbc.getJdbcTemplate())
+                .withTableName("films")
+                .usingColumns("name", "description", "release_date", "duration")
+                .usingGeneratedKeyColumns("id");
+    }
+
+    @Override
+    public Film findFilmById(Long id) {
+        List<Film> films = jdbc.query(SELECT_FILMS + " WHERE id = :id", Map.of("id", id), this::mapFilm);
+        if (films.isEmpty()) {
+            return null;
+        }
+        loadLikes(films);
+        log.debug("Фильм предоставлен");
+        return films.get(0);
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        Map<Long, Film> films = new LinkedHashMap<>();
+        jdbc.query(SELECT_FILMS + " ORDER BY id", rs -> {
+            Film film = mapFilm(rs, 0);
+            films.put(film.getId(), film);
+        });
+        jdbc.query("SELECT film_id, user_id FROM likes", rs -> {
+            films.get(rs.getLong("film_id")).getLikes().add(rs.getLong("user_id"));
+        });
+        log.debug("Список предоставлен. Текущее количество: {}", films.size());
+        return films.values();
+    }
+
+    @Override
+    public Collection<Film> findPage(Long afterId, int limit) {
+        List<Film> films = jdbc.query(SELECT_FILMS + " WHERE id > :after ORDER BY id LIMIT :limit",
+                Map.of("after", afterId, "limit", limit), this::mapFilm);
+        loadLikes(films);
+        return films;
+    }
+
+    @Override
+    public Collection<Film> findPopular(Long count) {
+        // порядок совпадает с индексом films_popular_idx, поэтому база читает только первые count строк
+        List<Film> films = jdbc.query(SELECT_FILMS + " ORDER BY likes_count DESC, id LIMIT :count",
+                Map.of("count", Math.max(0, count)), this::mapFilm);
+        loadLikes(films);
+        return films;
+    }
+
+    @Override
+    public Collection<Film> findPopularByYear(int year, Long count) {
+        // films_year_popular_idx хранит фильмы года уже в порядке рейтинга
+        List<Film> films = jdbc.query(SELECT_FILMS
+                        + " WHERE release_year = :year ORDER BY likes_count DESC, id LIMIT :count",
+                Map.of("year", year, "count", Math.max(0, count)), this::mapFilm);
+        loadLikes(films);
+        return films;
+    }
+
+    @Override
+    public Collection<Film> findTrending(TrendWindow window, Long count) {
+        // индекс likes_created_idx ограничивает просмотр лайками внутри окна, а не всей историей
+        List<Film> films = jdbc.query(SELECT_FILMS + " JOIN (SELECT film_id, COUNT(*) AS recent FROM likes "
+                        + "WHERE created_at >= :since GROUP BY film_id ORDER BY recent DESC, film_id LIMIT :count) trend "
+                        + "ON trend.film_id = films.id ORDER BY trend.recent DESC, films.id",
+                Map.of("since", Timestamp.from(Instant.now().minus(window.getLength())), "count", Math.max(0, count)),
+                this::mapFilm);
+        loadLikes(films);
+        return films;
+    }
+
+    @Override
+    public Film create(Film film) {
+        Number id = filmInsert.executeAndReturnKey(toParams(film));
+        film.setId(id.longValue());
+        log.info("Фильм успешно добавлен с ID = {}", film.getId());
+        return film;
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        // одна пакетная вставка; сгенерированные id возвращаются в порядке строк пакета
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbc.batchUpdate("INSERT INTO films (name, description, release_date, duration) "
+                        + "VALUES (:name, :description, :release_date, :duration)",
+                SqlParameterSourceUtils.createBatch(films.stream().map(this::toParams).toList()),
+                keys, new String[]{"id"});
+        List<Map<String, Object>> ids = keys.getKeyList();
+        for (int i = 0; i < films.size(); i++) {
+            films.get(i).setId(((Number) ids.get(i).get("id")).longValue());
+        }
+        log.info("Добавлено фильмов: {}", films.size());
+        return films;
+    }
+
+    @Override
+    public Film update(Film film) {
+        // незаданные поля остаются прежними; слияние делает сама база в одном UPDATE
+        jdbc.update("UPDATE films SET name = COALESCE(:name, name), description = COALESCE(:description, description), "
+                + "release_date = COALESCE(:release_date, release_date), duration = COALESCE(:duration, duration), "
+                + "version = NEXT VALUE FOR film_versions WHERE id = :id", toParams(film));
+        log.info("Фильм с ID = {} обновлён", film.getId());
+        return findFilmById(film.getId());
+    }
+
+    @Override
+    @Transactional
+    public boolean putLike(Long filmId, Long userId) {
+        Map<String, Long> params = Map.of("filmId", filmId, "userId", userId);
+        try {
+            if (jdbc.update(INSERT_LIKE, params) == 0) {
+                return false;
+            }
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        jdbc.update("UPDATE films SET likes_count = likes_count + 1, version = NEXT VALUE FOR film_versions "
+                + "WHERE id = :filmId", params);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteLike(Long filmId, Long userId) {
+        Map<String, Long> params = Map.of("filmId", filmId, "userId", userId);
+        if (jdbc.update(DELETE_LIKE, params) == 0) {
+            return false;
+        }
+        jdbc.update("UPDATE films SET likes_count = likes_count - 1, version = NEXT VALUE FOR film_versions "
+                + "WHERE id = :filmId", params);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean[] putLikes(List<FilmLike> likes) {
+        // повтор пары внутри пакета не вставится: первая строка уже видна в этой транзакции
+        return applyLikeCounts(likes, jdbc.batchUpdate(INSERT_LIKE, SqlParameterSourceUtils.createBatch(likes)), 1);
+    }
+
+    @Override
+    @Transactional
+    public boolean[] deleteLikes(List<FilmLike> likes) {
+        return applyLikeCounts(likes, jdbc.batchUpdate(DELETE_LIKE, SqlParameterSourceUtils.createBatch(likes)), -1);
+    }
+
+    @Override
+    public boolean checkId(Long id) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT EXISTS (SELECT 1 FROM films WHERE id = :id)",
+                Map.of("id", id), Boolean.class));
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(jdbc.queryForList("SELECT id FROM films WHERE id IN (:ids)", Map.of("ids", ids), Long.class));
+    }
+
+    @Override
+    public long[] findLikedFilmIds(Long userId) {
+        return jdbc.queryForList("SELECT film_id FROM likes WHERE user_id = :userId", Map.of("userId", userId), Long.class)
+                .stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Override
+    public long[] findLikeIds(Long filmId, long afterUserId, int limit) {
+        // страница читается по первичному ключу (film_id, user_id) без сортировки
+        return jdbc.queryForList("SELECT user_id FROM likes WHERE film_id = :filmId AND user_id > :after "
+                        + "ORDER BY user_id LIMIT :limit", Map.of("filmId", filmId, "after", afterUserId, "limit", limit),
+                Long.class).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Override
+    public long count() {
+        return jdbc.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM films", Long.class);
+    }
+
+    @Override
+    public long countLikes() {
+        return jdbc.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM likes", Long.class);
+    }
+
+    @Override
+    public long currentVersion() {
+        // следующее значение последовательности читается из словаря без обращения к таблице фильмов
+        return jdbc.getJdbcTemplate().queryForObject("SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES "
+                + "WHERE SEQUENCE_NAME = 'FILM_VERSIONS'", Long.class);
+    }
+
+    private boolean[] applyLikeCounts(List<FilmLike> likes, int[] rows, int delta) {
+        // счётчики каждого фильма сдвигаются одним обновлением на весь пакет
+        boolean[] applied = new boolean[rows.length];
+        Map<Long, Integer> deltas = new HashMap<>();
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] > 0) {
+                applied[i] = true;
+                deltas.merge(likes.get(i).getFilmId(), delta, Integer::sum);
+            }
+        }
+        if (!deltas.isEmpty()) {
+            jdbc.batchUpdate("UPDATE films SET likes_count = likes_count + :delta, "
+                            + "version = NEXT VALUE FOR film_versions WHERE id = :filmId",
+                    SqlParameterSourceUtils.createBatch(deltas.entrySet().stream()
+                            .map(entry -> Map.of("filmId", entry.getKey(), "delta", entry.getValue()))
+                            .toList()));
+        }
+        return applied;
+    }
+
+    private void loadLikes(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        Map<Long, Film> byId = new HashMap<>();
+        films.forEach(film -> byId.put(film.getId(), film));
+        jdbc.query("SELECT film_id, user_id FROM likes WHERE film_id IN (:ids)", Map.of("ids", byId.keySet()), rs -> {
+            byId.get(rs.getLong("film_id")).getLikes().add(rs.getLong("user_id"));
+        });
+    }
+
+    private Map<String, Object> toParams(Film film) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", film.getId());
+        params.put("name", film.getName());
+        params.put("description", film.getDescription());
+        params.put("release_date", film.getReleaseDate() == null ? null : Date.valueOf(film.getReleaseDate()));
+        params.put("duration", film.getDuration());
+        return params;
+    }
+
+    private Film mapFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getLong("id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        Date releaseDate = rs.getDate("release_date");
+        film.setReleaseDate(releaseDate == null ? null : releaseDate.toLocalDate());
+        film.setDuration(rs.getObject("duration", Integer.class));
+        film.setVersion(rs.getLong("version"));
+        return film;
+    }
+}
@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.storage.LockStripes;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+class PopularityIndex { //рейтинг фильмов по количеству лайков, обновляется при каждом лайке
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::likes).reversed()
+            .thenComparingLong(Entry::filmId);
+
+    // слияние обходит первые элементы всех частей, поэтому частей не больше восьми: каждая собирает несколько полос
+    private static final int MAX_PARTS = 8;
+
+    private final LockStripes locks;
+    private final NavigableSet<Entry>[] parts;
+
+    PopularityIndex() { //одна часть: для рейтингов, которые меняются редко
+        this(null);
+    }
+
+    // части по полосам блокировок: лайки фильмов из разных частей меняют разные списки и не мешают друг другу,
+    // а первые места собираются слиянием частей
+    @SuppressWarnings("unchecked")
+    PopularityIndex(LockStripes locks) {
+        this.locks = locks;
+        parts = new NavigableSet[locks == null ? 1 : Math.min(locks.size(), MAX_PARTS)];
+        for (int part = 0; part < parts.length; part++) {
+            parts[part] = new ConcurrentSkipListSet<>(ORDER);
+        }
+    }
+
+    // изменения по одному фильму должны выполняться под его блокировкой
+    void add(long filmId, int likes) {
+        part(filmId).add(new Entry(likes, filmId));
+    }
+
+    void move(long filmId, int oldLikes, int newLikes) {
+        NavigableSet<Entry> part = part(filmId);
+        part.add(new Entry(newLikes, filmId));
+        part.remove(new Entry(oldLikes, filmId));
+    }
+
+    void remove(long filmId, int likes) {
+        part(filmId).remove(new Entry(likes, filmId));
+    }
+
+    List<Long> top(long count) {
+        if (locks == null) {
+            return top(parts[0].iterator(), count);
+        }
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(parts.length);
+        for (NavigableSet<Entry> part : parts) {
+            Cursor cursor = new Cursor(part.iterator());
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        // во время move фильм может кратко встретиться дважды — оставляем одно вхождение
+        Set<Long> ids = new LinkedHashSet<>();
+        while (ids.size() < count && !heads.isEmpty()) {
+            Cursor head = heads.poll();
+            ids.add(head.entry.filmId());
+            if (head.advance()) {
+                heads.add(head);
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private static List<Long> top(Iterator<Entry> entries, long count) {
+        Set<Long> ids = new LinkedHashSet<>();
+        while (ids.size() < count && entries.hasNext()) {
+            ids.add(entries.next().filmId());
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private NavigableSet<Entry> part(long filmId) {
+        return locks == null ? parts[0] : parts[locks.stripe(filmId) & (parts.length - 1)];
+    }
+
+    private record Entry(int likes, long filmId) {
+    }
+
+    private static final class Cursor implements Comparable<Cursor> { //обход одной части при слиянии
+        private final Iterator<Entry> rest;
+        private Entry entry;
+
+        private Cursor(Iterator<Entry> rest) {
+            this.rest = rest;
+        }
+
+        private boolean advance() {
+            if (!rest.hasNext()) {
+                return false;
+            }
+            entry = rest.next();
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            return ORDER.compare(entry, other.entry);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.TrendWindow;
+import ru.yandex.practicum.filmorate.storage.LockStripes;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongIntHashMap;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// рейтинг по лайкам за скользящее окно: кольцо корзин, в каждой — кто лайкнул фильмы за её интервал.
+// Счёт фильма — его лайки, поставленные внутри окна и ещё не снятые, как по likes.created_at в профиле db.
+// Лайк меняет текущую корзину и сумму по окну за O(1), снятие ищет лайк в корзинах окна,
+// а устаревшая корзина вычитается из сумм при смене корзин
+class TrendingIndex {
+    private final long bucketMillis;
+    private final LockStripes locks;
+    private final Map<Long, LongHashSet>[][] buckets; //[корзина][полоса блокировок] id фильма -> кто лайкнул
+    private final LongIntHashMap[] scores; //[полоса] id фильма -> лайков за окно
+    private final PopularityIndex ranking = new PopularityIndex(); //только фильмы с положительной суммой
+    private volatile long current; //номер текущей корзины: время / длина корзины
+    private final ReentrantLock rollLock = new ReentrantLock(); //смена корзин по одной; не synchronized — без прикрепления
+
+    @SuppressWarnings("unchecked")
+    TrendingIndex(TrendWindow window, LockStripes locks, long nowMillis) {
+        this.bucketMillis = window.getBucket().toMillis();
+        this.locks = locks;
+        buckets = new Map[(int) (window.getLength().toMillis() / bucketMillis)][locks.size()];
+        for (Map<Long, LongHashSet>[] bucket : buckets) {
+            for (int stripe = 0; stripe < bucket.length; stripe++) {
+                bucket[stripe] = new HashMap<>();
+            }
+        }
+        scores = new LongIntHashMap[locks.size()];
+        for (int stripe = 0; stripe < scores.length; stripe++) {
+            scores[stripe] = new LongIntHashMap();
+        }
+        current = nowMillis / bucketMillis;
+    }
+
+    // вызывается под блокировкой фильма; возвращает изменение счёта, которое надо передать в add.
+    // Снятый лайк уменьшает счёт, только если был поставлен внутри окна
+    int record(long filmId, long userId, boolean liked) {
+        int stripe = locks.stripe(filmId);
+        if (liked) {
+            buckets[slot(current)][stripe].computeIfAbsent(filmId, id -> new LongHashSet()).add(userId);
+            return 1;
+        }
+        for (Map<Long, LongHashSet>[] bucket : buckets) {
+            LongHashSet users = bucket[stripe].get(filmId);
+            if (users != null && users.remove(userId)) {
+                if (users.isEmpty()) {
+                    bucket[stripe].remove(filmId);
+                }
+                return -1;
+            }
+        }
+        return 0;
+    }
+
+    void add(long filmId, int delta) { //под блокировкой фильма, после record
+        if (delta == 0) {
+            return;
+        }
+        int stripe = locks.stripe(filmId);
+        int score = scores[stripe].get(filmId);
+        scores[stripe].add(filmId, delta);
+        rank(filmId, score, score + delta);
+    }
+
+    List<Long> top(long count) {
+        return ranking.top(count);
+    }
+
+    // следующая корзина очищается до того, как станет текущей, поэтому лайки никогда не пишутся в очищаемую
+    void roll(long nowMillis) {
+        rollLock.lock();
+        try {
+            long target = nowMillis / bucketMillis;
+            if (target - current > buckets.length) { //после долгого простоя достаточно очистить каждую корзину один раз
+                current = target - buckets.length;
+            }
+            while (current < target) {
+                expire(slot(current + 1));
+                current++;
+            }
+        } finally {
+            rollLock.unlock();
+        }
+    }
+
+    private void expire(int slot) {
+        for (int stripe = 0; stripe < scores.length; stripe++) {
+            Lock lock = locks.forStripe(stripe);
+            lock.lock();
+            try {
+                LongIntHashMap stripeScores = scores[stripe];
+                buckets[slot][stripe].forEach((filmId, users) -> {
+                    int score = stripeScores.get(filmId);
+                    stripeScores.add(filmId, -users.size());
+                    rank(filmId, score, score - users.size());
+                });
+                buckets[slot][stripe] = new HashMap<>();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void rank(long filmId, int oldScore, int newScore) {
+        if (oldScore > 0 && newScore > 0) {
+            ranking.move(filmId, oldScore, newScore);
+        } else if (oldScore > 0) {
+            ranking.remove(filmId, oldScore);
+        } else if (newScore > 0) {
+            ranking.add(filmId, newScore);
+        }
+    }
+
+    private int slot(long bucket) {
+        return (int) (bucket % buckets.length);
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.cache.CachingFilmStorage;
+
+@Component
+@Profile("!db")
+public class TrendingRollover { //сдвигает окна рейтинга свежих лайков; проверка чаще смены корзины, пропуски догоняются
+    private final InMemoryFilmStorage filmStorage;
+
+    public TrendingRollover(FilmStorage filmStorage) {
+        this.filmStorage = (InMemoryFilmStorage) (filmStorage instanceof CachingFilmStorage caching
+                ? caching.getDelegate() : filmStorage);
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.trending.rollover-check:PT1M}")
+    public void roll() {
+        filmStorage.rollTrending(System.currentTimeMillis());
+    }
+}
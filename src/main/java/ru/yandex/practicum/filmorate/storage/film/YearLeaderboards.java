@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.storage.LockStripes;
+import ru.yandex.practicum.filmorate.util.LongIntHashMap;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// рейтинги фильмов по количеству лайков отдельно для каждого года выпуска.
+// Год, под которым фильм стоит в рейтинге, запоминается здесь же: сервис меняет дату выпуска
+// в том же объекте фильма, поэтому прежний год из самого фильма уже не узнать
+class YearLeaderboards {
+    private static final int NO_YEAR = 0; //фильм без даты выпуска ни в одном рейтинге не стоит
+
+    private final LockStripes locks;
+    private final LongIntHashMap[] years; //[полоса] id фильма -> год его рейтинга
+    private final Map<Integer, PopularityIndex> boards = new ConcurrentHashMap<>();
+
+    YearLeaderboards(LockStripes locks) {
+        this.locks = locks;
+        years = new LongIntHashMap[locks.size()];
+        for (int stripe = 0; stripe < years.length; stripe++) {
+            years[stripe] = new LongIntHashMap();
+        }
+    }
+
+    // методы вызываются под блокировкой фильма; сначала move меняет счёт, затем place — год
+
+    void move(long filmId, int oldLikes, int newLikes) {
+        int year = years[locks.stripe(filmId)].get(filmId);
+        if (year != NO_YEAR) {
+            boards.get(year).move(filmId, oldLikes, newLikes);
+        }
+    }
+
+    void place(long filmId, LocalDate releaseDate, int likes) {
+        LongIntHashMap stripeYears = years[locks.stripe(filmId)];
+        int oldYear = stripeYears.get(filmId);
+        int newYear = releaseDate == null ? NO_YEAR : releaseDate.getYear();
+        if (oldYear == newYear) {
+            return;
+        }
+        if (oldYear != NO_YEAR) {
+            boards.get(oldYear).remove(filmId, likes);
+        }
+        if (newYear != NO_YEAR) {
+            boards.computeIfAbsent(newYear, year -> new PopularityIndex()).add(filmId, likes);
+        }
+        stripeYears.add(filmId, newYear - oldYear);
+    }
+
+    List<Long> top(int year, long count) {
+        PopularityIndex board = boards.get(year);
+        return board == null ? List.of() : board.top(count);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+public enum FsyncPolicy {
+    ALWAYS,   //запрос завершается после fsync; параллельные записи сбрасываются одним fsync (group commit)
+    INTERVAL, //fsync не чаще раза в filmorate.storage.journal.fsync-interval, при сбое теряется последний интервал
+    NEVER     //сброс на диск остаётся на усмотрение ОС
+}
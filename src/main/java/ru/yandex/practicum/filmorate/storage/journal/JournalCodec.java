@@ -0,0 +1,215 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+final class JournalCodec { //двоичный формат записей журнала: [длина][тип и поля][crc32]
+    static final byte FILM_CREATED = 1;
+    static final byte FILM_UPDATED = 2;
+    static final byte LIKE_ADDED = 3;
+    static final byte LIKE_REMOVED = 4;
+    static final byte USER_CREATED = 5;
+    static final byte USER_UPDATED = 6;
+    static final byte FRIEND_ADDED = 7;
+    static final byte FRIEND_REMOVED = 8;
+
+    private static final int MAX_RECORD = 64 * 1024 * 1024;
+
+    private JournalCodec() {
+    }
+
+    static byte[] film(byte type, Film film, boolean withLikes) {
+        return frame(out -> {
+            out.writeByte(type);
+            out.writeLong(film.getId());
+            writeString(out, film.getName());
+            writeString(out, film.getDescription());
+            writeDate(out, film.getReleaseDate());
+            out.writeInt(film.getDuration() == null ? Integer.MIN_VALUE : film.getDuration());
+            if (withLikes) {
+                writeIds(out, film.getLikes().toLongArray());
+            }
+        });
+    }
+
+    static byte[] user(byte type, User user, boolean withFriends) {
+        return frame(out -> {
+            out.writeByte(type);
+            out.writeLong(user.getId());
+            writeString(out, user.getEmail());
+            writeString(out, user.getLogin());
+            writeString(out, user.getName());
+            writeDate(out, user.getBirthday());
+            if (withFriends) {
+                writeIds(out, user.getFriends().toLongArray());
+            }
+        });
+    }
+
+    static byte[] pair(byte type, long first, long second) {
+        return frame(out -> {
+            out.writeByte(type);
+            out.writeLong(first);
+            out.writeLong(second);
+        });
+    }
+
+    // читает следующую запись; null — конец файла или недописанный/повреждённый хвост
+    static byte[] read(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length <= 0 || length > MAX_RECORD) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        try {
+            in.readFully(payload);
+            int crc = in.readInt();
+            return crc == checksum(payload) ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    static int size(byte[] payload) {
+        return payload.length + 2 * Integer.BYTES;
+    }
+
+    static void apply(byte[] payload, InMemoryFilmStorage films, InMemoryUserStorage users) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        switch (type) {
+            case FILM_CREATED -> films.restoreFilm(readFilm(in, true));
+            case FILM_UPDATED -> films.restoreFilmFields(readFilm(in, false));
+            case LIKE_ADDED -> films.restoreLike(in.readLong(), in.readLong(), true);
+            case LIKE_REMOVED -> films.restoreLike(in.readLong(), in.readLong(), false);
+            case USER_CREATED -> users.restoreUser(readUser(in, true));
+            case USER_UPDATED -> users.restoreUserFields(readUser(in, false));
+            case FRIEND_ADDED -> users.restoreFriend(in.readLong(), in.readLong(), true);
+            case FRIEND_REMOVED -> users.restoreFriend(in.readLong(), in.readLong(), false);
+            default -> throw new IOException("Неизвестный тип записи журнала: " + type);
+        }
+    }
+
+    private static Film readFilm(DataInputStream in, boolean withLikes) throws IOException {
+        Film film = new Film();
+        film.setId(in.readLong());
+        film.setName(readString(in));
+        film.setDescription(readString(in));
+        film.setReleaseDate(readDate(in));
+        int duration = in.readInt();
+        film.setDuration(duration == Integer.MIN_VALUE ? null : duration);
+        if (withLikes) {
+            for (long id : readIds(in)) {
+                film.getLikes().add(id);
+            }
+        }
+        return film;
+    }
+
+    private static User readUser(DataInputStream in, boolean withFriends) throws IOException {
+        User user = new User();
+        user.setId(in.readLong());
+        user.setEmail(readString(in));
+        user.setLogin(readString(in));
+        user.setName(readString(in));
+        user.setBirthday(readDate(in));
+        if (withFriends) {
+            for (long id : readIds(in)) {
+                user.getFriends().add(id);
+            }
+        }
+        return user;
+    }
+
+    private static byte[] frame(Fields fields) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); //место под длину
+            fields.write(out);
+            int length = bytes.size() - Integer.BYTES;
+            out.writeInt(0); //место под crc
+            byte[] record = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(record, Integer.BYTES, length);
+            writeInt(record, 0, length);
+            writeInt(record, Integer.BYTES + length, (int) crc.getValue());
+            return record;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static void writeInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate date) throws IOException {
+        out.writeLong(date == null ? Long.MIN_VALUE : date.toEpochDay());
+    }
+
+    private static LocalDate readDate(DataInputStream in) throws IOException {
+        long epochDay = in.readLong();
+        return epochDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private static void writeIds(DataOutputStream out, long[] ids) throws IOException {
+        out.writeInt(ids.length);
+        for (long id : ids) {
+            out.writeLong(id);
+        }
+    }
+
+    private static long[] readIds(DataInputStream in) throws IOException {
+        long[] ids = new long[in.readInt()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = in.readLong();
+        }
+        return ids;
+    }
+
+    private interface Fields {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+final class JournalFiles { //имена файлов журнала: wal-N.log — сегменты, snapshot-N.bin — снимок перед сегментом N
+    private static final Pattern SEGMENT = Pattern.compile("wal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d+)\\.bin");
+
+    private JournalFiles() {
+    }
+
+    static Path segment(Path directory, long number) {
+        return directory.resolve(String.format("wal-%06d.log", number));
+    }
+
+    static Path snapshot(Path directory, long number) {
+        return directory.resolve(String.format("snapshot-%06d.bin", number));
+    }
+
+    static List<Long> segments(Path directory) throws IOException {
+        return numbers(directory, SEGMENT);
+    }
+
+    static List<Long> snapshots(Path directory) throws IOException {
+        return numbers(directory, SNAPSHOT);
+    }
+
+    private static List<Long> numbers(Path directory, Pattern pattern) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Matcher matcher = pattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    numbers.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+}
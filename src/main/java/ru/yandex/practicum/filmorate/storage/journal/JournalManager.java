@@ -0,0 +1,217 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.cache.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.cache.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.snapshot.MappedSnapshot;
+import ru.yandex.practicum.filmorate.storage.snapshot.SnapshotWriter;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+@Component
+@Profile("!db")
+@ConditionalOnProperty(name = "filmorate.storage.journal.enabled", havingValue = "true")
+public class JournalManager implements Closeable { //восстановление хранилищ в памяти при старте и периодические снимки
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final Duration fsyncInterval;
+    // не synchronized: снимок пишется на диск долго, и виртуальный поток не должен держать носитель всё это время
+    private final ReentrantLock lock = new ReentrantLock();
+    private WriteAheadLog wal;
+    private boolean snapshotAttached;
+
+    public JournalManager(FilmStorage filmStorage, UserStorage userStorage,
+                          @Value("${filmorate.storage.journal.directory:./data}") Path directory,
+                          @Value("${filmorate.storage.journal.fsync:always}") FsyncPolicy fsyncPolicy,
+                          @Value("${filmorate.storage.journal.fsync-interval:PT0.1S}") Duration fsyncInterval) {
+        this.filmStorage = (InMemoryFilmStorage) (filmStorage instanceof CachingFilmStorage caching
+                ? caching.getDelegate() : filmStorage);
+        this.userStorage = (InMemoryUserStorage) (userStorage instanceof CachingUserStorage caching
+                ? caching.getDelegate() : userStorage);
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncInterval = fsyncInterval;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        long lastSegment = recover();
+        // новый сегмент всегда начинается с чистого файла, даже если старый был обрезан
+        wal = new WriteAheadLog(directory, lastSegment + 1, fsyncPolicy, fsyncInterval);
+        filmStorage.setJournal(wal);
+        userStorage.setJournal(wal);
+        log.info("Журнал открыт: {}, сегмент {}, fsync {}", directory, wal.getSegment(), fsyncPolicy);
+        if (snapshotAttached) {
+            // запросы уже обслуживаются по отображённому снимку, остальное переносится в кучу в фоне
+            Thread.ofPlatform().daemon().name("snapshot-loader").start(this::loadSnapshot);
+        }
+    }
+
+    public void loadSnapshot() {
+        long start = System.nanoTime();
+        filmStorage.loadSnapshot();
+        userStorage.loadSnapshot();
+        log.info("Снимок загружен в память за {} мс", Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    // снимок нечёткий: изменения продолжаются, пока он пишется, но каждое из них есть в сегменте N или позже,
+    // а повторное применение записи к состоянию, которое её уже содержит, ничего не меняет
+    @Scheduled(fixedDelayString = "${filmorate.storage.journal.snapshot-interval:PT10M}",
+            initialDelayString = "${filmorate.storage.journal.snapshot-interval:PT10M}")
+    public void snapshot() throws IOException {
+        lock.lock();
+        try {
+            long segment = wal.rotate();
+            Path target = JournalFiles.snapshot(directory, segment);
+            Path tmp = directory.resolve(target.getFileName() + ".tmp");
+            SnapshotWriter.write(tmp, filmStorage.findAll(), userStorage.findAll());
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            // переименование должно дойти до диска раньше удалений: иначе после сбоя питания в каталоге
+            // может не оказаться ни нового снимка, ни старых файлов
+            if (!forceDirectory()) {
+                return;
+            }
+
+            // всё, что старше снимка, больше не нужно для восстановления
+            for (long number : JournalFiles.snapshots(directory)) {
+                if (number < segment) {
+                    Files.deleteIfExists(JournalFiles.snapshot(directory, number));
+                }
+            }
+            for (long number : JournalFiles.segments(directory)) {
+                if (number < segment) {
+                    Files.deleteIfExists(JournalFiles.segment(directory, number));
+                }
+            }
+            log.info("Снимок {} записан: {} байт", target.getFileName(), Files.size(target));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            filmStorage.setJournal(StorageJournal.NOOP);
+            userStorage.setJournal(StorageJournal.NOOP);
+            if (wal != null) {
+                wal.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // false, если файловая система не даёт сбросить каталог (например, Windows): старые файлы тогда не удаляются
+    private boolean forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+            return true;
+        } catch (IOException e) {
+            log.warn("Каталог журнала {} не сброшен на диск, старые снимки и сегменты сохранены: {}",
+                    directory, e.getMessage());
+            return false;
+        }
+    }
+
+    // отображает последний целый снимок и доигрывает сегменты после него; возвращает номер последнего сегмента
+    private long recover() throws IOException {
+        long from = 0;
+        List<Long> snapshots = JournalFiles.snapshots(directory);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path file = JournalFiles.snapshot(directory, snapshots.get(i));
+            try {
+                MappedSnapshot snapshot = MappedSnapshot.open(file);
+                filmStorage.attachSnapshot(snapshot);
+                userStorage.attachSnapshot(snapshot);
+                snapshotAttached = true;
+                from = snapshots.get(i);
+                break;
+            } catch (IOException e) {
+                log.warn("Снимок {} пропущен: {}", file.getFileName(), e.getMessage());
+            }
+        }
+        List<Long> segments = JournalFiles.segments(directory);
+        checkContiguous(from, segments);
+        long last = from;
+        long records = 0;
+        for (long number : segments) {
+            if (number >= from) {
+                records += replay(number);
+                last = number;
+            }
+        }
+        if (!snapshots.isEmpty() || !segments.isEmpty()) {
+            log.info("Хранилища восстановлены: снимок {}, записей журнала {}, фильмов {}, пользователей {}",
+                    from, records, filmStorage.count(), userStorage.count());
+        }
+        return last;
+    }
+
+    // снимок N продолжается сегментом N, а без снимка журнал начинается с сегмента 1. Если нужных сегментов нет
+    // (их удалили после более нового снимка, который не открылся), запуск с частью данных хуже, чем отказ
+    private void checkContiguous(long from, List<Long> segments) {
+        long expected = snapshotAttached ? from : 1;
+        for (long number : segments) {
+            if (number < from) {
+                continue;
+            }
+            if (number != expected) {
+                log.error("Журнал неполон: после снимка {} ожидался сегмент {}, найден {}", from, expected, number);
+                throw new IllegalStateException("Журнал в " + directory + " неполон: нет сегмента " + expected
+                        + " (снимок " + from + ", следующий сегмент " + number + ")");
+            }
+            expected++;
+        }
+    }
+
+    private long replay(long number) throws IOException {
+        Path file = JournalFiles.segment(directory, number);
+        long valid = 0;
+        long records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            byte[] payload;
+            while ((payload = JournalCodec.read(in)) != null) {
+                JournalCodec.apply(payload, filmStorage, userStorage);
+                valid += JournalCodec.size(payload);
+                records++;
+            }
+        }
+        long size = Files.size(file);
+        if (valid < size) {
+            // недописанный хвост после сбоя отбрасывается, чтобы следующий запуск не споткнулся о него снова
+            log.warn("Сегмент {} обрезан с {} до {} байт", file.getFileName(), size, valid);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+                channel.force(true);
+            }
+        }
+        return records;
+    }
+}
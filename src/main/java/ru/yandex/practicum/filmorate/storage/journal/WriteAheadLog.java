@@ -0,0 +1,283 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+public class WriteAheadLog implements StorageJournal, Closeable { //журнал изменений в файлах сегментов wal-N.log
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+
+    // lock защищает буфер и счётчики, channelLock — запись в файл и смену сегмента; вместе берутся только в rotate
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingWrites = lock.newCondition();
+    private final Condition durableWrites = lock.newCondition();
+    private final ReentrantLock channelLock = new ReentrantLock();
+
+    private byte[] pending = new byte[64 * 1024];
+    private int pendingSize;
+    private long appended; //номер последней записи в буфере
+    private long durable;  //номер последней записи, надёжной по политике fsync
+    private boolean closed;
+    private IOException failure;
+
+    private FileChannel channel;
+    private long segment;
+    private boolean unforced;
+    private final Thread flusher;
+
+    public WriteAheadLog(Path directory, long segment, FsyncPolicy fsyncPolicy, Duration fsyncInterval) throws IOException {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        this.segment = segment;
+        this.channel = open(segment);
+        this.flusher = Thread.ofPlatform().daemon().name("wal-flusher").start(this::flushLoop);
+    }
+
+    public long getSegment() {
+        channelLock.lock();
+        try {
+            return segment;
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    @Override
+    public long filmCreated(Film film) {
+        return append(JournalCodec.film(JournalCodec.FILM_CREATED, film, true));
+    }
+
+    @Override
+    public long filmUpdated(Film film) {
+        return append(JournalCodec.film(JournalCodec.FILM_UPDATED, film, false));
+    }
+
+    @Override
+    public long likeAdded(long filmId, long userId) {
+        return append(JournalCodec.pair(JournalCodec.LIKE_ADDED, filmId, userId));
+    }
+
+    @Override
+    public long likeRemoved(long filmId, long userId) {
+        return append(JournalCodec.pair(JournalCodec.LIKE_REMOVED, filmId, userId));
+    }
+
+    @Override
+    public long userCreated(User user) {
+        return append(JournalCodec.user(JournalCodec.USER_CREATED, user, true));
+    }
+
+    @Override
+    public long userUpdated(User user) {
+        return append(JournalCodec.user(JournalCodec.USER_UPDATED, user, false));
+    }
+
+    @Override
+    public long friendAdded(long userId, long friendId) {
+        return append(JournalCodec.pair(JournalCodec.FRIEND_ADDED, userId, friendId));
+    }
+
+    @Override
+    public long friendRemoved(long userId, long friendId) {
+        return append(JournalCodec.pair(JournalCodec.FRIEND_REMOVED, userId, friendId));
+    }
+
+    @Override
+    public void sync(long position) {
+        if (fsyncPolicy != FsyncPolicy.ALWAYS || position <= 0) {
+            return;
+        }
+        // group commit: все, кто дописал записи за время предыдущего fsync, дождутся одного следующего
+        lock.lock();
+        try {
+            while (durable < position) {
+                checkFailure();
+                durableWrites.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // закрывает текущий сегмент и начинает следующий; возвращает номер нового сегмента —
+    // всё, что записано до вызова, лежит в сегментах с меньшими номерами и уже применено в памяти
+    public long rotate() throws IOException {
+        channelLock.lock();
+        try {
+            lock.lock();
+            try {
+                checkFailure();
+                write(channel, pending, pendingSize);
+                pendingSize = 0;
+                channel.force(false);
+                unforced = false;
+                durable = appended;
+                durableWrites.signalAll();
+                channel.close();
+                segment++;
+                channel = open(segment);
+                return segment;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            pendingWrites.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channelLock.lock();
+        try {
+            channel.close();
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    private long append(byte[] record) {
+        lock.lock();
+        try {
+            checkFailure();
+            if (closed) {
+                throw new IllegalStateException("Журнал закрыт");
+            }
+            if (pendingSize + record.length > pending.length) {
+                pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingSize + record.length));
+            }
+            System.arraycopy(record, 0, pending, pendingSize, record.length);
+            pendingSize += record.length;
+            pendingWrites.signal();
+            return ++appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        byte[] spare = new byte[pending.length];
+        long lastForce = System.nanoTime();
+        while (true) {
+            lock.lock();
+            try {
+                while (pendingSize == 0 && !closed) {
+                    if (unforced && fsyncPolicy == FsyncPolicy.INTERVAL) {
+                        // новых записей нет, но записанное ещё не сброшено: ждём не дольше конца интервала
+                        long remaining = lastForce + fsyncIntervalNanos - System.nanoTime();
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        pendingWrites.awaitNanos(remaining);
+                    } else {
+                        pendingWrites.awaitUninterruptibly();
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            // буфер забирается уже под channelLock, чтобы rotate не мог вклиниться между выемкой и записью
+            // и пачка не попала в сегмент после более поздних записей
+            long upTo;
+            boolean stop;
+            IOException error = null;
+            channelLock.lock();
+            try {
+                byte[] batch;
+                int size;
+                lock.lock();
+                try {
+                    batch = pending;
+                    size = pendingSize;
+                    upTo = appended;
+                    stop = closed;
+                    pending = spare.length >= batch.length ? spare : new byte[batch.length];
+                    pendingSize = 0;
+                } finally {
+                    lock.unlock();
+                }
+                spare = batch;
+                write(channel, batch, size);
+                unforced |= size > 0;
+                long now = System.nanoTime();
+                if (unforced && (stop || fsyncPolicy == FsyncPolicy.ALWAYS
+                        || fsyncPolicy == FsyncPolicy.INTERVAL && now - lastForce >= fsyncIntervalNanos)) {
+                    channel.force(false);
+                    unforced = false;
+                    lastForce = now;
+                }
+            } catch (IOException e) {
+                log.error("Запись журнала не удалась", e);
+                error = e;
+                upTo = 0;
+                stop = true;
+            } finally {
+                channelLock.unlock();
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durable = Math.max(durable, upTo);
+                }
+                durableWrites.signalAll();
+                if (stop || error != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Журнал недоступен", failure);
+        }
+    }
+
+    private FileChannel open(long number) throws IOException {
+        return FileChannel.open(JournalFiles.segment(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static void write(FileChannel channel, byte[] bytes, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, size);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package ru.yandex.practicum.filmorate.storage.snapshot;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+public final class MappedSnapshot { //снимок каталога, отображённый в память: столбцы читаются по индексу без разбора всего файла
+    static final long MAGIC = 0x31504E53544D4C46L; //"FLMTSNP1"
+    static final int VERSION = 1;
+    static final long NULL_DATE = Long.MIN_VALUE;
+    static final int NULL_DURATION = Integer.MIN_VALUE;
+
+    // столбцы: id и даты фиксированной ширины, строки — байты с массивом смещений, лайки и друзья — id со смещениями
+    static final int FILM_IDS = 0;
+    static final int FILM_RELEASE_DATES = 1;
+    static final int FILM_DURATIONS = 2;
+    static final int FILM_NAME_OFFSETS = 3;
+    static final int FILM_NAMES = 4;
+    static final int FILM_DESCRIPTION_OFFSETS = 5;
+    static final int FILM_DESCRIPTIONS = 6;
+    static final int FILM_LIKE_OFFSETS = 7;
+    static final int FILM_LIKES = 8;
+    static final int USER_IDS = 9;
+    static final int USER_BIRTHDAYS = 10;
+    static final int USER_EMAIL_OFFSETS = 11;
+    static final int USER_EMAILS = 12;
+    static final int USER_LOGIN_OFFSETS = 13;
+    static final int USER_LOGINS = 14;
+    static final int USER_NAME_OFFSETS = 15;
+    static final int USER_NAMES = 16;
+    static final int USER_FRIEND_OFFSETS = 17;
+    static final int USER_FRIENDS = 18;
+    static final int USER_EMAIL_ORDER = 19; //индексы пользователей, упорядоченные по байтам email
+    static final int SECTIONS = 20;
+
+    // заголовок: magic, версия, число столбцов, фильмов, пользователей, лайков, длина файла, таблица [смещение, длина]
+    static final int VERSION_OFFSET = 8;
+    static final int SECTIONS_OFFSET = 12;
+    static final int FILMS_OFFSET = 16;
+    static final int USERS_OFFSET = 20;
+    static final int LIKES_OFFSET = 24;
+    static final int LENGTH_OFFSET = 32;
+    static final int TABLE_OFFSET = 40;
+    static final int HEADER_SIZE = TABLE_OFFSET + SECTIONS * 2 * Long.BYTES;
+
+    private final int filmCount;
+    private final int userCount;
+    private final long likesCount;
+    private final LongBuffer filmIds;
+    private final LongBuffer releaseDates;
+    private final IntBuffer durations;
+    private final Strings filmNames;
+    private final Strings descriptions;
+    private final IntBuffer likeOffsets;
+    private final LongBuffer likes;
+    private final LongBuffer userIds;
+    private final LongBuffer birthdays;
+    private final Strings emails;
+    private final Strings logins;
+    private final Strings userNames;
+    private final IntBuffer friendOffsets;
+    private final LongBuffer friends;
+    private final IntBuffer emailOrder;
+
+    private MappedSnapshot(ByteBuffer header, ByteBuffer[] sections) {
+        filmCount = header.getInt(FILMS_OFFSET);
+        userCount = header.getInt(USERS_OFFSET);
+        likesCount = header.getLong(LIKES_OFFSET);
+        filmIds = sections[FILM_IDS].asLongBuffer();
+        releaseDates = sections[FILM_RELEASE_DATES].asLongBuffer();
+        durations = sections[FILM_DURATIONS].asIntBuffer();
+        filmNames = new Strings(sections[FILM_NAME_OFFSETS], sections[FILM_NAMES]);
+        descriptions = new Strings(sections[FILM_DESCRIPTION_OFFSETS], sections[FILM_DESCRIPTIONS]);
+        likeOffsets = sections[FILM_LIKE_OFFSETS].asIntBuffer();
+        likes = sections[FILM_LIKES].asLongBuffer();
+        userIds = sections[USER_IDS].asLongBuffer();
+        birthdays = sections[USER_BIRTHDAYS].asLongBuffer();
+        emails = new Strings(sections[USER_EMAIL_OFFSETS], sections[USER_EMAILS]);
+        logins = new Strings(sections[USER_LOGIN_OFFSETS], sections[USER_LOGINS]);
+        userNames = new Strings(sections[USER_NAME_OFFSETS], sections[USER_NAMES]);
+        friendOffsets = sections[USER_FRIEND_OFFSETS].asIntBuffer();
+        friends = sections[USER_FRIENDS].asLongBuffer();
+        emailOrder = sections[USER_EMAIL_ORDER].asIntBuffer();
+    }
+
+    // отображает файл в память; читается только заголовок, столбцы подгружаются страницами при обращении
+    public static MappedSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Снимок " + file + " короче заголовка");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getLong(0) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION
+                    || header.getInt(SECTIONS_OFFSET) != SECTIONS || header.getLong(LENGTH_OFFSET) != size) {
+                throw new IOException("Снимок " + file + " повреждён или не дописан");
+            }
+            ByteBuffer[] sections = new ByteBuffer[SECTIONS];
+            for (int i = 0; i < SECTIONS; i++) {
+                long offset = header.getLong(TABLE_OFFSET + i * 2 * Long.BYTES);
+                long length = header.getLong(TABLE_OFFSET + i * 2 * Long.BYTES + Long.BYTES);
+                if (offset < HEADER_SIZE || length < 0 || offset + length > size) {
+                    throw new IOException("Снимок " + file + " повреждён: столбец " + i + " вне файла");
+                }
+                // отображение остаётся действительным и после закрытия канала
+                sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new MappedSnapshot(header, sections);
+        }
+    }
+
+    public int filmCount() {
+        return filmCount;
+    }
+
+    public int userCount() {
+        return userCount;
+    }
+
+    public long likesCount() {
+        return likesCount;
+    }
+
+    public long maxFilmId() {
+        return filmCount == 0 ? 0 : filmIds.get(filmCount - 1);
+    }
+
+    public long maxUserId() {
+        return userCount == 0 ? 0 : userIds.get(userCount - 1);
+    }
+
+    public long filmId(int index) {
+        return filmIds.get(index);
+    }
+
+    public long userId(int index) {
+        return userIds.get(index);
+    }
+
+    public int filmIndex(long id) {
+        return indexOf(filmIds, filmCount, id);
+    }
+
+    public int userIndex(long id) {
+        return indexOf(userIds, userCount, id);
+    }
+
+    public Film film(int index) {
+        Film film = new Film();
+        film.setId(filmIds.get(index));
+        film.setName(filmNames.get(index));
+        film.setDescription(descriptions.get(index));
+        long releaseDate = releaseDates.get(index);
+        film.setReleaseDate(releaseDate == NULL_DATE ? null : LocalDate.ofEpochDay(releaseDate));
+        int duration = durations.get(index);
+        film.setDuration(duration == NULL_DURATION ? null : duration);
+        for (int i = likeOffsets.get(index); i < likeOffsets.get(index + 1); i++) {
+            film.getLikes().add(likes.get(i));
+        }
+        return film;
+    }
+
+    public User user(int index) {
+        User user = new User();
+        user.setId(userIds.get(index));
+        user.setEmail(emails.get(index));
+        user.setLogin(logins.get(index));
+        user.setName(userNames.get(index));
+        long birthday = birthdays.get(index);
+        user.setBirthday(birthday == NULL_DATE ? null : LocalDate.ofEpochDay(birthday));
+        for (int i = friendOffsets.get(index); i < friendOffsets.get(index + 1); i++) {
+            user.getFriends().add(friends.get(i));
+        }
+        return user;
+    }
+
+    // id пользователя, у которого в снимке этот email, или -1; двоичный поиск по упорядоченному столбцу
+    public long findUserIdByEmail(String email) {
+        byte[] key = email.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = userCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int index = emailOrder.get(middle);
+            int compare = emails.compare(index, key);
+            if (compare < 0) {
+                low = middle + 1;
+            } else if (compare > 0) {
+                high = middle - 1;
+            } else {
+                return userIds.get(index);
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(LongBuffer ids, int count, long id) {
+        // id выдаются подряд, поэтому обычно фильм с id N лежит по индексу N - 1
+        if (id >= 1 && id <= count && ids.get((int) (id - 1)) == id) {
+            return (int) (id - 1);
+        }
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long value = ids.get(middle);
+            if (value < id) {
+                low = middle + 1;
+            } else if (value > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private static final class Strings { //строковый столбец: [флаг null][UTF-8] подряд и смещения начала каждой строки
+        private final IntBuffer offsets;
+        private final ByteBuffer bytes;
+
+        Strings(ByteBuffer offsets, ByteBuffer bytes) {
+            this.offsets = offsets.asIntBuffer();
+            this.bytes = bytes;
+        }
+
+        String get(int index) {
+            int start = offsets.get(index);
+            if (bytes.get(start) == 0) {
+                return null;
+            }
+            byte[] value = new byte[offsets.get(index + 1) - start - 1];
+            bytes.get(start + 1, value); //абсолютное чтение не двигает позицию и безопасно из разных потоков
+            return new String(value, StandardCharsets.UTF_8);
+        }
+
+        int compare(int index, byte[] key) {
+            int start = offsets.get(index) + 1;
+            int length = offsets.get(index + 1) - start;
+            for (int i = 0; i < Math.min(length, key.length); i++) {
+                int compare = Byte.compareUnsigned(bytes.get(start + i), key[i]);
+                if (compare != 0) {
+                    return compare;
+                }
+            }
+            return Integer.compare(length, key.length);
+        }
+    }
+}
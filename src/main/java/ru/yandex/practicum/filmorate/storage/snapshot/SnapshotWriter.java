@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.storage.snapshot;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import static ru.yandex.practicum.filmorate.storage.snapshot.MappedSnapshot.*;
+
+public final class SnapshotWriter { //пишет снимок в столбцовом формате MappedSnapshot
+
+    private SnapshotWriter() {
+    }
+
+    // каждый фильм и пользователь читается один раз, поэтому параллельные изменения не рассогласуют столбцы
+    public static void write(Path file, Collection<Film> films, Collection<User> users) throws IOException {
+        Column[] columns = new Column[SECTIONS];
+        for (int i = 0; i < SECTIONS; i++) {
+            columns[i] = new Column();
+        }
+
+        List<Film> sortedFilms = new ArrayList<>(films);
+        sortedFilms.sort(Comparator.comparing(Film::getId));
+        long likesCount = 0;
+        columns[FILM_NAME_OFFSETS].putInt(0);
+        columns[FILM_DESCRIPTION_OFFSETS].putInt(0);
+        columns[FILM_LIKE_OFFSETS].putInt(0);
+        for (Film film : sortedFilms) {
+            columns[FILM_IDS].putLong(film.getId());
+            columns[FILM_RELEASE_DATES].putLong(epochDay(film.getReleaseDate()));
+            columns[FILM_DURATIONS].putInt(film.getDuration() == null ? NULL_DURATION : film.getDuration());
+            columns[FILM_NAMES].putString(film.getName());
+            columns[FILM_NAME_OFFSETS].putInt(columns[FILM_NAMES].size());
+            columns[FILM_DESCRIPTIONS].putString(film.getDescription());
+            columns[FILM_DESCRIPTION_OFFSETS].putInt(columns[FILM_DESCRIPTIONS].size());
+            long[] likes = film.getLikes().toLongArray();
+            for (long userId : likes) {
+                columns[FILM_LIKES].putLong(userId);
+            }
+            likesCount += likes.length;
+            columns[FILM_LIKE_OFFSETS].putInt(columns[FILM_LIKES].size() / Long.BYTES);
+        }
+
+        List<User> sortedUsers = new ArrayList<>(users);
+        sortedUsers.sort(Comparator.comparing(User::getId));
+        byte[][] emails = new byte[sortedUsers.size()][];
+        columns[USER_EMAIL_OFFSETS].putInt(0);
+        columns[USER_LOGIN_OFFSETS].putInt(0);
+        columns[USER_NAME_OFFSETS].putInt(0);
+        columns[USER_FRIEND_OFFSETS].putInt(0);
+        for (int i = 0; i < sortedUsers.size(); i++) {
+            User user = sortedUsers.get(i);
+            emails[i] = user.getEmail().getBytes(StandardCharsets.UTF_8);
+            columns[USER_IDS].putLong(user.getId());
+            columns[USER_BIRTHDAYS].putLong(epochDay(user.getBirthday()));
+            columns[USER_EMAILS].putBytes(emails[i]);
+            columns[USER_EMAIL_OFFSETS].putInt(columns[USER_EMAILS].size());
+            columns[USER_LOGINS].putString(user.getLogin());
+            columns[USER_LOGIN_OFFSETS].putInt(columns[USER_LOGINS].size());
+            columns[USER_NAMES].putString(user.getName());
+            columns[USER_NAME_OFFSETS].putInt(columns[USER_NAMES].size());
+            for (long friendId : user.getFriends().toLongArray()) {
+                columns[USER_FRIENDS].putLong(friendId);
+            }
+            columns[USER_FRIEND_OFFSETS].putInt(columns[USER_FRIENDS].size() / Long.BYTES);
+        }
+        // порядок по байтам email нужен для поиска занятого email без загрузки пользователей в память
+        Integer[] order = new Integer[emails.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (first, second) -> Arrays.compareUnsigned(emails[first], emails[second]));
+        for (int index : order) {
+            columns[USER_EMAIL_ORDER].putInt(index);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            long position = HEADER_SIZE;
+            for (int i = 0; i < SECTIONS; i++) {
+                position = (position + Long.BYTES - 1) & -Long.BYTES; //столбцы выровнены по 8 байт
+                header.putLong(TABLE_OFFSET + i * 2 * Long.BYTES, position);
+                header.putLong(TABLE_OFFSET + i * 2 * Long.BYTES + Long.BYTES, columns[i].size());
+                writeFully(channel, columns[i].buffer(), position);
+                position += columns[i].size();
+            }
+            // заголовок пишется последним: файл без верной длины в заголовке не будет принят при чтении
+            header.putLong(0, MAGIC);
+            header.putInt(VERSION_OFFSET, VERSION);
+            header.putInt(SECTIONS_OFFSET, SECTIONS);
+            header.putInt(FILMS_OFFSET, sortedFilms.size());
+            header.putInt(USERS_OFFSET, sortedUsers.size());
+            header.putLong(LIKES_OFFSET, likesCount);
+            header.putLong(LENGTH_OFFSET, position);
+            if (channel.size() < position) { //дополняем выравнивание пустых столбцов в конце файла
+                writeFully(channel, ByteBuffer.allocate((int) (position - channel.size())), channel.size());
+            }
+            writeFully(channel, header, 0);
+            channel.force(true);
+        }
+    }
+
+    private static long epochDay(LocalDate date) {
+        return date == null ? NULL_DATE : date.toEpochDay();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static final class Column { //растущий буфер одного столбца; отображение в память ограничивает его 2 ГБ
+        private ByteBuffer buffer = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+
+        void putLong(long value) {
+            ensure(Long.BYTES).putLong(value);
+        }
+
+        void putInt(int value) {
+            ensure(Integer.BYTES).putInt(value);
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                ensure(1).put((byte) 0);
+            } else {
+                putBytes(value.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        void putBytes(byte[] value) {
+            ensure(1 + value.length).put((byte) 1).put(value);
+        }
+
+        int size() {
+            return buffer.position();
+        }
+
+        ByteBuffer buffer() {
+            return buffer.duplicate().flip();
+        }
+
+        private ByteBuffer ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                long needed = (long) buffer.position() + bytes;
+                if (needed > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Столбец снимка превышает 2 ГБ");
+                }
+                long capacity = Math.min(Math.max((long) buffer.capacity() * 2, needed), Integer.MAX_VALUE - 8);
+                buffer = ByteBuffer.allocate((int) capacity).order(ByteOrder.LITTLE_ENDIAN).put(buffer.flip());
+            }
+            return buffer;
+        }
+    }
+}
@@ -1,49 +1,399 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.LockStripes;
+import ru.yandex.practicum.filmorate.storage.PartitionedMap;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.snapshot.MappedSnapshot;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 
 @Slf4j
 @Component
+@Profile("!db")
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
-    private Long sequence = 0L;
+    static final int DEFAULT_PARTITIONS = 64;
+    private static final long RESERVED = 0; //email занят создаваемым пользователем, id ещё не выдан
+
+    private final LockStripes locks;
+    private final PartitionedMap<User> users; //части совпадают с полосами блокировок
+    private final Map<String, Long> emails = new ConcurrentHashMap<>(); //email -> id, общий: уникальность по всем частям
+    private final AtomicLong sequence = new AtomicLong();
+    // версии отсчитываются от времени запуска, поэтому после перезапуска не повторяют выданные раньше
+    private final long epoch = System.currentTimeMillis() * 1000;
+    private final AtomicLong versions = new AtomicLong(epoch);
+    private volatile StorageJournal journal = StorageJournal.NOOP;
+    // снимок, отображённый в память при старте: пользователь переносится из него в кучу при первом обращении,
+    // остальные — фоновой загрузкой; пока он не загружен, занятость email проверяется и по снимку
+    private volatile MappedSnapshot snapshot;
+    private final AtomicInteger unloaded = new AtomicInteger();
+
+    public InMemoryUserStorage() {
+        this(DEFAULT_PARTITIONS);
+    }
+
+    @Autowired
+    public InMemoryUserStorage(@Value("${filmorate.storage.partitions:64}") int partitions) {
+        locks = new LockStripes(partitions);
+        users = new PartitionedMap<>(locks);
+    }
 
     private Long getSequence() {
-        return ++sequence;
+        return sequence.incrementAndGet();
+    }
+
+    public void setJournal(StorageJournal journal) {
+        this.journal = journal;
+    }
+
+    public void attachSnapshot(MappedSnapshot snapshot) {
+        sequence.accumulateAndGet(snapshot.maxUserId(), Math::max);
+        unloaded.set(snapshot.userCount());
+        this.snapshot = snapshot;
+    }
+
+    // переносит в кучу всех пользователей снимка; можно вызывать из нескольких потоков одновременно
+    public void loadSnapshot() {
+        MappedSnapshot snapshot = this.snapshot;
+        if (snapshot == null) {
+            return;
+        }
+        for (int index = 0; index < snapshot.userCount(); index++) {
+            user(snapshot.userId(index));
+        }
+        this.snapshot = null;
     }
 
     @Override
     public User findUserById(Long id) {
-        log.info("Пользователь предоставлен");
-        return users.get(id);
+        log.debug("Пользователь предоставлен");
+        return user(id);
     }
 
     @Override
     public Collection<User> findAll() {
-        log.info("Список предоставлен. Текущее количество пользователей {}.", users.size());
+        loadSnapshot();
+        log.debug("Список предоставлен. Текущее количество пользователей {}.", users.size());
         return users.values();
     }
 
+    @Override
+    public Collection<User> findPage(Long afterId, int limit) {
+        // id выдаются подряд и не удаляются, поэтому страница собирается обходом id без сортировки
+        List<User> page = new ArrayList<>(Math.min(limit, users.size()));
+        for (long id = afterId + 1; id <= sequence.get() && page.size() < limit; id++) {
+            User user = user(id);
+            if (user != null) {
+                page.add(user);
+            }
+        }
+        return page;
+    }
+
     @Override
     public User create(User user) {
-        user.setId(getSequence());
-        users.put(user.getId(), user);
+        long position = store(user);
+        if (position < 0) {
+            log.warn("Пользователь не создан — email уже используется: {}", user.getEmail());
+            throw new ValidationException("Этот имейл уже использутся");
+        }
+        journal.sync(position);
         log.info("Пользователь успешно создан с ID = {}", user.getId());
         return user;
     }
 
     @Override
-    public User update(User user) {
-        users.put(user.getId(), user);
+    public List<User> createAll(List<User> users) {
+        List<User> created = new ArrayList<>(users.size());
+        long last = 0;
+        for (User user : users) {
+            long position = store(user);
+            if (position >= 0) {
+                created.add(user);
+                last = position;
+            }
+        }
+        journal.sync(last); //весь пакет ждёт одного сброса журнала
+        log.info("Создано пользователей: {}", created.size());
+        return created;
+    }
+
+    // возвращает номер записи журнала или -1, если email уже занят
+    private long store(User user) {
+        // в секции email только проверка снимка и метка занятости — так же атомарно, как перенос из снимка;
+        // id, журнал и карта пользователей уже вне её, чтобы запись в журнал не держала блокировку карты
+        user.setId(null);
+        boolean[] claimed = {false};
+        emails.computeIfAbsent(user.getEmail(), email -> {
+            if (takenInSnapshot(email)) {
+                return null;
+            }
+            claimed[0] = true;
+            return RESERVED;
+        });
+        if (!claimed[0]) {
+            return -1;
+        }
+        long id = getSequence(); //только после занятия email: отказ по дублю не оставляет дыр в id
+        Lock lock = locks.forId(id);
+        lock.lock();
+        try {
+            user.setId(id);
+            user.setVersion(versions.incrementAndGet());
+            long position = journal.userCreated(user);
+            users.put(id, user);
+            emails.replace(user.getEmail(), RESERVED, id);
+            return position;
+        } catch (RuntimeException e) {
+            emails.remove(user.getEmail(), RESERVED); //журнал недоступен — email освобождается
+            user.setId(null);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public User update(User changes) {
+        long position;
+        User user;
+        Lock lock = locks.forId(changes.getId());
+        lock.lock();
+        try {
+            // email прежней версии из снимка попадает в индекс при чтении; вместо правки хранимого объекта
+            // кладётся новый, поэтому читатели без блокировки видят пользователя целиком старым или новым
+            user = merge(user(changes.getId()), changes);
+            user.setVersion(versions.incrementAndGet());
+            users.put(user.getId(), user);
+            position = journal.userUpdated(user);
+        } finally {
+            lock.unlock();
+        }
+        journal.sync(position);
         log.info("Пользователь с ID = {} успешно обновлён", user.getId());
         return user;
     }
 
+    private static User merge(User oldUser, User changes) { //вызывается под блокировкой пользователя
+        if (oldUser == null) {
+            return changes;
+        }
+        User user = new User();
+        user.setId(oldUser.getId());
+        user.setEmail(oldUser.getEmail());
+        user.setLogin(changes.getLogin() != null ? changes.getLogin() : oldUser.getLogin());
+        user.setName(changes.getName() != null ? changes.getName() : oldUser.getName());
+        user.setBirthday(changes.getBirthday() != null ? changes.getBirthday() : oldUser.getBirthday());
+        user.getFriends().addAll(oldUser.getFriends());
+        return user;
+    }
+
+    @Override
+    public boolean updateEmail(Long userId, String email) {
+        long position;
+        Lock lock = locks.forId(userId);
+        lock.lock();
+        try {
+            User user = user(userId);
+            boolean[] claimed = {false};
+            emails.computeIfAbsent(email, key -> {
+                if (takenInSnapshot(key)) {
+                    return null;
+                }
+                claimed[0] = true;
+                return userId;
+            });
+            if (!claimed[0]) {
+                return false;
+            }
+            emails.remove(user.getEmail(), userId);
+            user.setEmail(email);
+            user.setVersion(versions.incrementAndGet());
+            position = journal.userUpdated(user);
+        } finally {
+            lock.unlock();
+        }
+        journal.sync(position);
+        return true;
+    }
+
+    @Override
+    public void putFriend(Long userId, Long friendId) {
+        journal.sync(friend(userId, friendId, true, true));
+    }
+
+    @Override
+    public boolean[] putFriends(List<Friendship> friendships) {
+        boolean[] applied = new boolean[friendships.size()];
+        long last = 0;
+        for (int i = 0; i < applied.length; i++) {
+            long position = friend(friendships.get(i).getUserId(), friendships.get(i).getFriendId(), true, true);
+            applied[i] = position >= 0;
+            last = Math.max(last, position);
+        }
+        journal.sync(last); //весь пакет ждёт одного сброса журнала
+        return applied;
+    }
+
+    @Override
+    public void deleteFriend(Long userId, Long friendId) {
+        journal.sync(friend(userId, friendId, false, true));
+    }
+
+    // возвращает номер записи журнала или -1, если дружба уже была (или её не было)
+    private long friend(long userId, long friendId, boolean added, boolean journaled) {
+        // обе стороны дружбы меняются под одной блокировкой, чтобы журнал видел изменения пары в том же порядке
+        Lock lock = locks.forId(Math.min(userId, friendId));
+        lock.lock();
+        try {
+            User user = user(userId);
+            User friend = user(friendId);
+            boolean changed = added ? user.getFriends().add(friendId) : user.getFriends().remove(friendId);
+            changed |= added ? friend.getFriends().add(userId) : friend.getFriends().remove(userId);
+            if (!changed) {
+                return -1;
+            }
+            user.setVersion(versions.incrementAndGet());
+            friend.setVersion(versions.incrementAndGet());
+            if (!journaled) {
+                return 0;
+            }
+            return added ? journal.friendAdded(userId, friendId) : journal.friendRemoved(userId, friendId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // восстановление из снимка и журнала: изменения применяются без повторной записи в журнал
+    // и повторяемы, поэтому запись, уже отражённая в снимке, применяется ещё раз без вреда
+
+    public void restoreUser(User user) { //заменяет пользователя целиком вместе с друзьями
+        User oldUser = user(user.getId());
+        user.setVersion(versions.incrementAndGet());
+        users.put(user.getId(), user);
+        if (oldUser != null) {
+            emails.remove(oldUser.getEmail(), user.getId());
+        }
+        emails.put(user.getEmail(), user.getId());
+        sequence.accumulateAndGet(user.getId(), Math::max);
+    }
+
+    public void restoreUserFields(User update) { //обновляет поля пользователя, не трогая друзей
+        User user = user(update.getId());
+        if (user == null) {
+            restoreUser(update);
+            return;
+        }
+        emails.remove(user.getEmail(), user.getId());
+        emails.put(update.getEmail(), user.getId());
+        user.setEmail(update.getEmail());
+        user.setLogin(update.getLogin());
+        user.setName(update.getName());
+        user.setBirthday(update.getBirthday());
+        user.setVersion(versions.incrementAndGet());
+    }
+
+    public void restoreFriend(long userId, long friendId, boolean added) {
+        if (exists(userId) && exists(friendId)) {
+            friend(userId, friendId, added, false);
+        }
+    }
+
     public boolean checkId(Long id) {
-        return users.containsKey(id);
+        return exists(id);
+    }
+
+    @Override
+    public long[] findFriendIds(Long userId) {
+        User user = user(userId);
+        return user == null ? new long[0] : user.getFriends().sortedArray();
+    }
+
+    @Override
+    public long[] findFriendIds(Long userId, long afterId, int limit) {
+        User user = user(userId);
+        return user == null ? new long[0] : user.getFriends().sortedPage(afterId, limit);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        for (Long id : ids) {
+            if (exists(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public boolean checkEmail(String email) {
+        return emails.containsKey(email) || takenInSnapshot(email);
+    }
+
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        Set<String> existing = new HashSet<>();
+        for (String email : emails) {
+            if (this.emails.containsKey(email) || takenInSnapshot(email)) {
+                existing.add(email);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public long count() {
+        return users.size() + unloaded.get();
+    }
+
+    private User user(long id) { //пользователь из кучи, а пока снимок не загружен целиком — из снимка
+        User user = users.get(id);
+        MappedSnapshot snapshot = this.snapshot;
+        if (user != null || snapshot == null) {
+            return user;
+        }
+        int index = snapshot.userIndex(id);
+        if (index < 0) {
+            return null;
+        }
+        // пользователь и его email переносятся атомарно в секции email, как и при создании: пока пользователя
+        // нет в карте, email считается занятым по снимку, а после переноса его занимает запись в emails
+        User loaded = snapshot.user(index);
+        loaded.setVersion(epoch); //пользователи снимка не менялись с запуска
+        emails.compute(loaded.getEmail(), (email, owner) -> {
+            if (users.putIfAbsent(id, loaded) != null) {
+                return owner; //другой поток успел раньше, и email мог уже смениться
+            }
+            unloaded.decrementAndGet();
+            return id;
+        });
+        return users.get(id);
+    }
+
+    private boolean exists(long id) {
+        MappedSnapshot snapshot = this.snapshot;
+        return users.containsKey(id) || snapshot != null && snapshot.userIndex(id) >= 0;
+    }
+
+    // email принадлежит пользователю снимка, ещё не перенесённому в кучу; после переноса email учитывается в emails
+    private boolean takenInSnapshot(String email) {
+        MappedSnapshot snapshot = this.snapshot;
+        if (snapshot == null) {
+            return false;
+        }
+        long id = snapshot.findUserIdByEmail(email);
+        return id > 0 && !users.containsKey(id);
     }
 }
\ No newline at end of file
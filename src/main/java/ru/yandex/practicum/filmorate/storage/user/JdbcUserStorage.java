@@ -0,0 +1,280 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSourceUtils;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+@Slf4j
+@Component
+@Profile("db")
+public class JdbcUserStorage implements UserStorage { //хранение во встроенной базе H2
+    private static final String SELECT_USERS = "SELECT id, email, login, name, birthday, version FROM users";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final SimpleJdbcInsert userInsert;
+    private final TransactionTemplate transactions;
+
+    public JdbcUserStorage(NamedParameterJdbcTemplate jdbc, PlatformTransactionManager transactionManager) {
+        this.jdbc = jdbc;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.userInsert = new SimpleJdbcInsert(jdbc.getJdbcTemplate())
+                .withTableName("users")
+                .usingColumns("email", "login", "name", "birthday")
+                .usingGeneratedKeyColumns("id");
+    }
+
+    @Override
+    public User findUserById(Long id) {
+        List<User> users = jdbc.query(SELECT_USERS + " WHERE id = :id", Map.of("id", id), this::mapUser);
+        if (users.isEmpty()) {
+            return null;
+        }
+        loadFriends(users);
+        log.debug("Пользователь предоставлен");
+        return users.get(0);
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        Map<Long, User> users = new LinkedHashMap<>();
+        jdbc.query(SELECT_USERS + " ORDER BY id", rs -> {
+            User user = mapUser(rs, 0);
+            users.put(user.getId(), user);
+        });
+        jdbc.query("SELECT user_id, friend_id FROM friendships", rs -> {
+            users.get(rs.getLong("user_id")).getFriends().add(rs.getLong("friend_id"));
+        });
+        log.debug("Список предоставлен. Текущее количество пользователей {}.", users.size());
+        return users.values();
+    }
+
+    @Override
+    public Collection<User> findPage(Long afterId, int limit) {
+        List<User> users = jdbc.query(SELECT_USERS + " WHERE id > :after ORDER BY id LIMIT :limit",
+                Map.of("after", afterId, "limit", limit), this::mapUser);
+        loadFriends(users);
+        return users;
+    }
+
+    @Override
+    public User create(User user) {
+        try {
+            Number id = userInsert.executeAndReturnKey(toParams(user));
+            user.setId(id.longValue());
+        } catch (DuplicateKeyException e) {
+            log.warn("Пользователь не создан — email уже используется: {}", user.getEmail());
+            throw new ValidationException("Этот имейл уже использутся");
+        }
+        log.info("Пользователь успешно создан с ID = {}", user.getId());
+        return user;
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        // одна пакетная вставка в транзакции; если email успели занять параллельно, пакет откатывается целиком
+        // и вставляется построчно — сохраняются все, кроме пользователей с занятым email
+        List<Map<String, Object>> ids;
+        try {
+            ids = transactions.execute(status -> insertBatch(users));
+        } catch (DuplicateKeyException e) {
+            log.warn("Пакет пользователей откатан — email уже используется, пользователи вставляются по одному");
+            return createEach(users);
+        }
+        for (int i = 0; i < users.size(); i++) { //сгенерированные id возвращаются в порядке строк пакета
+            users.get(i).setId(((Number) ids.get(i).get("id")).longValue());
+        }
+        log.info("Создано пользователей: {}", users.size());
+        return users;
+    }
+
+    private List<Map<String, Object>> insertBatch(List<User> users) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbc.batchUpdate("INSERT INTO users (email, login, name, birthday) VALUES (:email, :login, :name, :birthday)",
+                SqlParameterSourceUtils.createBatch(users.stream().map(this::toParams).toList()),
+                keys, new String[]{"id"});
+        return keys.getKeyList();
+    }
+
+    private List<User> createEach(List<User> users) {
+        List<User> created = new ArrayList<>(users.size());
+        for (User user : users) {
+            try {
+                user.setId(userInsert.executeAndReturnKey(toParams(user)).longValue());
+                created.add(user);
+            } catch (DuplicateKeyException e) {
+                log.warn("Пользователь не создан — email уже используется: {}", user.getEmail());
+            }
+        }
+        log.info("Создано пользователей: {} из {}", created.size(), users.size());
+        return created;
+    }
+
+    @Override
+    public User update(User user) {
+        // незаданные поля остаются прежними; email меняется через updateEmail
+        jdbc.update("UPDATE users SET login = COALESCE(:login, login), name = COALESCE(:name, name), "
+                + "birthday = COALESCE(:birthday, birthday), version = NEXT VALUE FOR user_versions WHERE id = :id",
+                toParams(user));
+        log.info("Пользователь с ID = {} успешно обновлён", user.getId());
+        return findUserById(user.getId());
+    }
+
+    @Override
+    public boolean updateEmail(Long userId, String email) {
+        try {
+            return jdbc.update("UPDATE users SET email = :email, version = NEXT VALUE FOR user_versions WHERE id = :id",
+                    Map.of("email", email, "id", userId)) > 0;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void putFriend(Long userId, Long friendId) {
+        // обе стороны дружбы уходят в базу одним пакетом
+        jdbc.batchUpdate("MERGE INTO friendships (user_id, friend_id) KEY (user_id, friend_id) "
+                + "VALUES (:userId, :friendId)", friendshipRows(userId, friendId));
+        touch(List.of(userId, friendId));
+    }
+
+    @Override
+    public boolean[] putFriends(List<Friendship> friendships) {
+        // весь пакет уходит одной пачкой: за прямой строкой каждой пары идёт обратная,
+        // новой считается дружба, у которой вставилась прямая строка
+        List<Map<String, Long>> rows = new ArrayList<>(friendships.size() * 2);
+        for (Friendship friendship : friendships) {
+            rows.add(Map.of("userId", friendship.getUserId(), "friendId", friendship.getFriendId()));
+            rows.add(Map.of("userId", friendship.getFriendId(), "friendId", friendship.getUserId()));
+        }
+        int[] inserted = jdbc.batchUpdate("INSERT INTO friendships (user_id, friend_id) SELECT :userId, :friendId "
+                + "WHERE NOT EXISTS (SELECT 1 FROM friendships WHERE user_id = :userId AND friend_id = :friendId)",
+                SqlParameterSourceUtils.createBatch(rows));
+        boolean[] applied = new boolean[friendships.size()];
+        Set<Long> changed = new HashSet<>();
+        for (int i = 0; i < applied.length; i++) {
+            applied[i] = inserted[2 * i] > 0;
+            if (applied[i]) {
+                changed.add(friendships.get(i).getUserId());
+                changed.add(friendships.get(i).getFriendId());
+            }
+        }
+        touch(changed);
+        return applied;
+    }
+
+    @Override
+    public void deleteFriend(Long userId, Long friendId) {
+        jdbc.batchUpdate("DELETE FROM friendships WHERE user_id = :userId AND friend_id = :friendId",
+                friendshipRows(userId, friendId));
+        touch(List.of(userId, friendId));
+    }
+
+    private void touch(Collection<Long> ids) { //новые версии пользователям, у которых сменились друзья
+        jdbc.batchUpdate("UPDATE users SET version = NEXT VALUE FOR user_versions WHERE id = :id",
+                SqlParameterSourceUtils.createBatch(ids.stream().map(id -> Map.of("id", id)).toList()));
+    }
+
+    @Override
+    public long[] findFriendIds(Long userId) {
+        return jdbc.queryForList("SELECT friend_id FROM friendships WHERE user_id = :userId ORDER BY friend_id",
+                Map.of("userId", userId), Long.class).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Override
+    public long[] findFriendIds(Long userId, long afterId, int limit) {
+        return jdbc.queryForList("SELECT friend_id FROM friendships WHERE user_id = :userId AND friend_id > :after "
+                        + "ORDER BY friend_id LIMIT :limit", Map.of("userId", userId, "after", afterId, "limit", limit),
+                Long.class).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Override
+    public boolean checkId(Long id) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT EXISTS (SELECT 1 FROM users WHERE id = :id)",
+                Map.of("id", id), Boolean.class));
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(jdbc.queryForList("SELECT id FROM users WHERE id IN (:ids)", Map.of("ids", ids), Long.class));
+    }
+
+    @Override
+    public boolean checkEmail(String email) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT EXISTS (SELECT 1 FROM users WHERE email = :email)",
+                Map.of("email", email), Boolean.class));
+    }
+
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(jdbc.queryForList("SELECT email FROM users WHERE email IN (:emails)",
+                Map.of("emails", emails), String.class));
+    }
+
+    @Override
+    public long count() {
+        return jdbc.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM users", Long.class);
+    }
+
+    private SqlParameterSource[] friendshipRows(Long userId, Long friendId) {
+        return SqlParameterSourceUtils.createBatch(
+                Map.of("userId", userId, "friendId", friendId),
+                Map.of("userId", friendId, "friendId", userId));
+    }
+
+    private void loadFriends(List<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        Map<Long, User> byId = new HashMap<>();
+        users.forEach(user -> byId.put(user.getId(), user));
+        jdbc.query("SELECT user_id, friend_id FROM friendships WHERE user_id IN (:ids)", Map.of("ids", byId.keySet()),
+                rs -> {
+                    byId.get(rs.getLong("user_id")).getFriends().add(rs.getLong("friend_id"));
+                });
+    }
+
+    private Map<String, Object> toParams(User user) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", user.getId());
+        params.put("email", user.getEmail());
+        params.put("login", user.getLogin());
+        params.put("name", user.getName());
+        params.put("birthday", user.getBirthday() == null ? null : Date.valueOf(user.getBirthday()));
+        return params;
+    }
+
+    private User mapUser(ResultSet rs, int rowNum) throws SQLException {
+        User user = new User();
+        user.setId(rs.getLong("id"));
+        user.setEmail(rs.getString("email"));
+        user.setLogin(rs.getString("login"));
+        user.setName(rs.getString("name"));
+        Date birthday = rs.getDate("birthday");
+        user.setBirthday(birthday == null ? null : birthday.toLocalDate());
+        user.setVersion(rs.getLong("version"));
+        return user;
+    }
+}
@@ -1,8 +1,11 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 public interface UserStorage {
 
@@ -10,9 +13,33 @@ public interface UserStorage {
 
     Collection<User> findAll();
 
+    Collection<User> findPage(Long afterId, int limit);
+
     User create(User user);
 
-    User update(User user);
+    List<User> createAll(List<User> users);
+
+    User update(User user); //поля, равные null, остаются прежними; email меняется только через updateEmail
+
+    boolean updateEmail(Long userId, String email);
+
+    void putFriend(Long userId, Long friendId);
+
+    boolean[] putFriends(List<Friendship> friendships);
+
+    void deleteFriend(Long userId, Long friendId);
+
+    long[] findFriendIds(Long userId); //id друзей по возрастанию; массив может быть общим, изменять его нельзя
+
+    long[] findFriendIds(Long userId, long afterId, int limit); //страница id друзей по возрастанию
 
     boolean checkId(Long id);
+
+    Set<Long> findExistingIds(Collection<Long> ids);
+
+    boolean checkEmail(String email);
+
+    Set<String> findExistingEmails(Collection<String> emails);
+
+    long count();
 }
\ No newline at end of file
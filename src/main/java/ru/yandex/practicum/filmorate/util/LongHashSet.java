@@ -0,0 +1,294 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+
+public class LongHashSet extends AbstractSet<Long> { //множество id без упаковки в Long: открытая адресация по long[]
+    private static final long[] EMPTY = new long[0];
+    private static final int MIN_CAPACITY = 4;
+    private static final long FREE = 0L; //пустая ячейка таблицы, сам 0 хранится отдельным флагом
+
+    private final StampedLock lock = new StampedLock();
+    private long[] keys = EMPTY;
+    private boolean containsFree;
+    private int size;
+    private volatile long[] sorted; //общий снимок для обходов графа, сбрасывается при изменении
+
+    public boolean contains(long value) {
+        long stamp = lock.tryOptimisticRead();
+        boolean found = find(keys, value) >= 0 || value == FREE && containsFree;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = find(keys, value) >= 0 || value == FREE && containsFree;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    public boolean add(long value) {
+        long stamp = lock.writeLock();
+        try {
+            if (value == FREE) {
+                if (containsFree) {
+                    return false;
+                }
+                containsFree = true;
+                size++;
+                sorted = null;
+                return true;
+            }
+            if (keys.length == 0) {
+                keys = new long[MIN_CAPACITY];
+            }
+            int mask = keys.length - 1;
+            int pos = slot(value, mask);
+            while (keys[pos] != FREE) {
+                if (keys[pos] == value) {
+                    return false;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[pos] = value;
+            size++;
+            sorted = null;
+            if (tableSize() > keys.length / 4 * 3) {
+                rehash(keys.length * 2);
+            }
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean remove(long value) {
+        long stamp = lock.writeLock();
+        try {
+            if (value == FREE) {
+                if (!containsFree) {
+                    return false;
+                }
+                containsFree = false;
+                size--;
+                sorted = null;
+                return true;
+            }
+            int pos = find(keys, value);
+            if (pos < 0) {
+                return false;
+            }
+            shiftKeys(pos);
+            size--;
+            sorted = null;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public long[] toLongArray() {
+        long stamp = lock.readLock();
+        try {
+            return copy();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // отсортированный массив, общий для всех читателей до следующего изменения: повторные обходы
+    // не копируют множество. Массив нельзя изменять
+    public long[] sortedArray() {
+        long[] result = sorted;
+        if (result != null) {
+            return result;
+        }
+        long stamp = lock.readLock();
+        try {
+            result = copy();
+            Arrays.sort(result);
+            sorted = result; //публикуется под блокировкой чтения: писатель сбросит его только после нас
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long[] sortedPage(long after, int limit) { //до limit значений больше after по возрастанию
+        long[] sorted = sortedArray();
+        int from = Arrays.binarySearch(sorted, after);
+        from = from >= 0 ? from + 1 : -from - 1;
+        return Arrays.copyOfRange(sorted, from, (int) Math.min(sorted.length, (long) from + limit));
+    }
+
+    public long[] intersect(LongHashSet other) { //пересечение по возрастанию: перебираем меньшее множество, ищем в большем
+        LongHashSet smaller = size() <= other.size() ? this : other;
+        LongHashSet larger = smaller == this ? other : this;
+        // снимок меньшего множества сразу служит буфером результата, блокировки двух множеств не вкладываются
+        long[] common = smaller.toLongArray();
+        int count = 0;
+        for (long value : common) {
+            if (larger.contains(value)) {
+                common[count++] = value;
+            }
+        }
+        Arrays.sort(common, 0, count);
+        return count == common.length ? common : Arrays.copyOf(common, count);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long value && contains(value.longValue());
+    }
+
+    @Override
+    public boolean add(Long value) {
+        return add(value.longValue());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Long value && remove(value.longValue());
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int result = size;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            keys = EMPTY;
+            containsFree = false;
+            size = 0;
+            sorted = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Iterator<Long> iterator() { //итерация идёт по снимку, поэтому не мешает параллельным изменениям
+        long[] snapshot = toLongArray();
+        return new Iterator<>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < snapshot.length;
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot[index++];
+            }
+
+            @Override
+            public void remove() {
+                if (index == 0) {
+                    throw new IllegalStateException();
+                }
+                LongHashSet.this.remove(snapshot[index - 1]);
+            }
+        };
+    }
+
+    private long[] copy() {
+        long[] result = new long[size];
+        int index = 0;
+        if (containsFree) {
+            result[index++] = FREE;
+        }
+        for (long key : keys) {
+            if (key != FREE) {
+                result[index++] = key;
+            }
+        }
+        return result;
+    }
+
+    private int tableSize() {
+        return containsFree ? size - 1 : size;
+    }
+
+    private static int slot(long value, int mask) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int find(long[] table, long value) {
+        if (table.length == 0 || value == FREE) {
+            return -1;
+        }
+        int mask = table.length - 1;
+        int pos = slot(value, mask);
+        // при оптимистичном чтении таблица может меняться, поэтому число проб ограничено её размером
+        for (int probes = 0; probes < table.length; probes++) {
+            long key = table[pos];
+            if (key == value) {
+                return pos;
+            }
+            if (key == FREE) {
+                return -1;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        long[] newKeys = new long[capacity];
+        int mask = capacity - 1;
+        for (long key : keys) {
+            if (key != FREE) {
+                int pos = slot(key, mask);
+                while (newKeys[pos] != FREE) {
+                    pos = (pos + 1) & mask;
+                }
+                newKeys[pos] = key;
+            }
+        }
+        keys = newKeys;
+    }
+
+    private void shiftKeys(int pos) { //удаление без "надгробий": сдвигаем назад элементы той же цепочки
+        int mask = keys.length - 1;
+        while (true) {
+            int last = pos;
+            pos = (pos + 1) & mask;
+            long current;
+            while (true) {
+                current = keys[pos];
+                if (current == FREE) {
+                    keys[last] = FREE;
+                    return;
+                }
+                int home = slot(current, mask);
+                if (last <= pos ? last >= home || home > pos : last >= home && home > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = current;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package ru.yandex.practicum.filmorate.util;
+
+public class LongIntHashMap { //счётчики по id без упаковки: открытая адресация по long[] и int[], без синхронизации
+    private static final int MIN_CAPACITY = 16;
+    private static final long FREE = 0L; //пустая ячейка таблицы, счётчик для 0 хранится отдельно
+
+    private long[] keys = new long[MIN_CAPACITY];
+    private int[] values = new int[MIN_CAPACITY];
+    private boolean containsFree;
+    private int freeValue;
+    private int size;
+
+    public int get(long key) {
+        if (key == FREE) {
+            return freeValue;
+        }
+        int mask = keys.length - 1;
+        for (int pos = slot(key, mask); keys[pos] != FREE; pos = (pos + 1) & mask) {
+            if (keys[pos] == key) {
+                return values[pos];
+            }
+        }
+        return 0;
+    }
+
+    public void add(long key, int delta) {
+        if (key == FREE) {
+            if (!containsFree) {
+                containsFree = true;
+                size++;
+            }
+            freeValue += delta;
+            return;
+        }
+        int mask = keys.length - 1;
+        int pos = slot(key, mask);
+        while (keys[pos] != FREE) {
+            if (keys[pos] == key) {
+                values[pos] += delta;
+                return;
+            }
+            pos = (pos + 1) & mask;
+        }
+        keys[pos] = key;
+        values[pos] = delta;
+        size++;
+        if (size > keys.length / 4 * 3) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    public void addAll(LongIntHashMap other) { //слияние частичных счётчиков параллельных задач
+        if (other.containsFree) {
+            add(FREE, other.freeValue);
+        }
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != FREE) {
+                add(other.keys[i], other.values[i]);
+            }
+        }
+    }
+
+    // слияние для collect: меньшая таблица добавляется в большую, other после вызова использовать нельзя
+    public void merge(LongIntHashMap other) {
+        if (other.size > size) {
+            long[] keys = this.keys;
+            int[] values = this.values;
+            boolean containsFree = this.containsFree;
+            int freeValue = this.freeValue;
+            int size = this.size;
+            this.keys = other.keys;
+            this.values = other.values;
+            this.containsFree = other.containsFree;
+            this.freeValue = other.freeValue;
+            this.size = other.size;
+            other.keys = keys;
+            other.values = values;
+            other.containsFree = containsFree;
+            other.freeValue = freeValue;
+            other.size = size;
+        }
+        addAll(other);
+    }
+
+    public void forEach(Entry consumer) {
+        if (containsFree) {
+            consumer.accept(FREE, freeValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // k ключей с наибольшими значениями по убыванию, при равенстве — по возрастанию ключа
+    public long[] topKeys(int k) {
+        Top top = new Top(Math.min(k, size));
+        if (containsFree) {
+            top.offer(FREE, freeValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                top.offer(keys[i], values[i]);
+            }
+        }
+        return top.sortedKeys();
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int pos = slot(oldKeys[i], mask);
+                while (keys[pos] != FREE) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = oldKeys[i];
+                values[pos] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L; //перемешивание, чтобы подряд идущие id не садились в соседние ячейки
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> builder.append(builder.length() > 1 ? ", " : "").append(key).append('=').append(value));
+        return builder.append('}').toString();
+    }
+
+    private static final class Top { //куча из k отобранных пар на массивах, наверху худшая
+        private final long[] keys;
+        private final int[] values;
+        private int size;
+
+        Top(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+        }
+
+        void offer(long key, int value) {
+            if (size < keys.length) {
+                keys[size] = key;
+                values[size] = value;
+                siftUp(size++);
+            } else if (size > 0 && isBetter(key, value, 0)) {
+                keys[0] = key;
+                values[0] = value;
+                siftDown(0);
+            }
+        }
+
+        long[] sortedKeys() { //худшая уходит с вершины первой и встаёт в конец результата
+            long[] result = new long[size];
+            for (int i = size - 1; i >= 0; i--) {
+                result[i] = keys[0];
+                size--;
+                keys[0] = keys[size];
+                values[0] = values[size];
+                siftDown(0);
+            }
+            return result;
+        }
+
+        private boolean isBetter(long key, int value, int pos) {
+            return value > values[pos] || value == values[pos] && key < keys[pos];
+        }
+
+        private void siftUp(int pos) {
+            while (pos > 0) {
+                int parent = (pos - 1) / 2;
+                if (!isBetter(keys[parent], values[parent], pos)) {
+                    return;
+                }
+                swap(pos, parent);
+                pos = parent;
+            }
+        }
+
+        private void siftDown(int pos) {
+            while (true) {
+                int child = 2 * pos + 1;
+                if (child >= size) {
+                    return;
+                }
+                if (child + 1 < size && isBetter(keys[child], values[child], child + 1)) {
+                    child++;
+                }
+                if (!isBetter(keys[pos], values[pos], child)) {
+                    return;
+                }
+                swap(pos, child);
+                pos = child;
+            }
+        }
+
+        private void swap(int first, int second) {
+            long key = keys[first];
+            keys[first] = keys[second];
+            keys[second] = key;
+            int value = values[first];
+            values[first] = values[second];
+            values[second] = value;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Entry {
+        void accept(long key, int value);
+    }
+}
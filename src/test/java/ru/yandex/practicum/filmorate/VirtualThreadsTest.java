@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate;
+
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.cache.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.threads.virtual.enabled=true", "filmorate.storage.cache.enabled=true"})
+public class VirtualThreadsTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserStorage userStorage;
+
+    @Test
+    void shouldServeRequestsOnVirtualThreads() {
+        TomcatWebServer webServer = (TomcatWebServer) context.getWebServer();
+        assertInstanceOf(VirtualThreadExecutor.class,
+                webServer.getTomcat().getConnector().getProtocolHandler().getExecutor());
+
+        User user = new User();
+        user.setEmail("virtual@example.com");
+        user.setLogin("virtual");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        userService.create(user);
+
+        assertEquals("virtual", restTemplate.getForObject("/users/" + user.getId(), User.class).getLogin());
+        assertNotNull(((CachingUserStorage) userStorage).getCache().getIfPresent(user.getId()),
+                "Промах асинхронного кэша должен загружаться и сохраняться");
+    }
+}
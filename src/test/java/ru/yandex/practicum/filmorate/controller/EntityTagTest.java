@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "filmorate.popular-cache.max-staleness=0s")
+public class EntityTagTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void filmTag_shouldChangeOnLikeAndUpdate() {
+        Film film = createFilm("Фильм");
+        User user = createUser("etag-film");
+        String url = "/films/" + film.getId();
+
+        String tag = get(url, null).getHeaders().getETag();
+        assertNotNull(tag);
+        assertTrue(tag.startsWith("\""), tag); //строгий тег
+
+        ResponseEntity<String> notModified = get(url, tag);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertNull(notModified.getBody());
+        assertEquals(tag, notModified.getHeaders().getETag());
+
+        filmService.putLike(film.getId(), user.getId());
+        ResponseEntity<String> liked = get(url, tag);
+        assertEquals(HttpStatus.OK, liked.getStatusCode());
+        assertNotEquals(tag, liked.getHeaders().getETag());
+
+        tag = liked.getHeaders().getETag();
+        film.setDescription("Новое описание");
+        filmService.update(film);
+        assertEquals(HttpStatus.OK, get(url, tag).getStatusCode());
+    }
+
+    @Test
+    void popularTag_shouldChangeWhenAnyListedFilmChanges() {
+        Film film = createFilm("Популярный");
+        User user = createUser("etag-popular");
+        filmService.putLike(film.getId(), user.getId());
+        String url = "/films/popular?count=1000";
+
+        String tag = get(url, null).getHeaders().getETag();
+        assertEquals(HttpStatus.NOT_MODIFIED, get(url, tag).getStatusCode());
+
+        filmService.deleteLike(film.getId(), user.getId());
+        assertEquals(HttpStatus.OK, get(url, tag).getStatusCode());
+    }
+
+    @Test
+    void summaryTag_shouldDifferFromFullTag() {
+        Film film = createFilm("Краткий");
+        String url = "/films/" + film.getId();
+
+        String full = get(url, null).getHeaders().getETag();
+        ResponseEntity<String> summary = get(url + "?view=summary", full);
+        assertEquals(HttpStatus.OK, summary.getStatusCode()); //тег полного ответа не подходит к краткому
+        assertNotNull(summary.getBody());
+        assertNotEquals(full, summary.getHeaders().getETag());
+        assertEquals(HttpStatus.NOT_MODIFIED, get(url + "?view=summary", summary.getHeaders().getETag()).getStatusCode());
+        assertEquals(HttpStatus.OK, get(url, summary.getHeaders().getETag()).getStatusCode());
+
+        String popular = "/films/popular?count=1000";
+        String popularFull = get(popular, null).getHeaders().getETag();
+        ResponseEntity<String> popularSummary = get(popular + "&view=summary", popularFull);
+        assertEquals(HttpStatus.OK, popularSummary.getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED,
+                get(popular + "&view=summary", popularSummary.getHeaders().getETag()).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, get(url + "?view=brief", full).getStatusCode());
+    }
+
+    @Test
+    void friendsTag_shouldChangeOnPutFriend() {
+        User user = createUser("etag-user");
+        User friend = createUser("etag-friend");
+        User other = createUser("etag-other");
+        userService.putFriend(user.getId(), friend.getId());
+        String url = "/users/" + user.getId() + "/friends";
+
+        String tag = get(url, null).getHeaders().getETag();
+        assertEquals(HttpStatus.NOT_MODIFIED, get(url, tag).getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, get(url, "W/" + tag).getStatusCode());
+
+        userService.putFriend(friend.getId(), other.getId()); //друг изменился, хотя список тот же
+        assertEquals(HttpStatus.OK, get(url, tag).getStatusCode());
+    }
+
+    private ResponseEntity<String> get(String url, String ifNoneMatch) {
+        HttpHeaders headers = new HttpHeaders();
+        if (ifNoneMatch != null) {
+            headers.setIfNoneMatch(ifNoneMatch);
+        }
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+
+    private Film createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return filmService.create(film);
+    }
+
+    private User createUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@example.com");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return userService.create(user);
+    }
+}
@@ -1,33 +1,59 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchStatus;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.ResponseView;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
-import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class FilmControllerTest {
 
     private FilmController filmController;
+    private InMemoryFilmStorage filmStorage;
+    private UserStorage userStorage;
     private Film film;
+    private ObjectMapper objectMapper;
 
     @BeforeEach
     void setUp() {
-        FilmStorage filmStorage = new InMemoryFilmStorage();
-        UserStorage userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
         FilmService filmService = new FilmService(filmStorage, userStorage);
-        filmController = new FilmController(filmService);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        this.objectMapper = objectMapper;
+        filmController = new FilmController(filmService, new NdjsonWriter(objectMapper), new JsonImportReader(objectMapper),
+                new PopularResponseCache(filmService, objectMapper, Duration.ZERO), Optional.empty());
         film = new Film();
         film.setName("Тестовый фильм");
         film.setDescription("Тестовое описание");
@@ -57,6 +83,46 @@ public class FilmControllerTest {
         assertTrue(allFilms.contains(addedFilm));
     }
 
+    @Test
+    void findPage_shouldReturnFilmsAfterCursor() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Film newFilm = new Film();
+            newFilm.setName("Фильм " + i);
+            newFilm.setDescription("Описание");
+            newFilm.setReleaseDate(LocalDate.of(2000, 1, 1));
+            newFilm.setDuration(100);
+            films.add(filmController.create(newFilm));
+        }
+
+        assertEquals(films.subList(0, 2), List.copyOf(filmController.findPage(0L, 2)));
+        assertEquals(films.subList(2, 4), List.copyOf(filmController.findPage(films.get(1).getId(), 2)));
+        assertEquals(films.subList(4, 5), List.copyOf(filmController.findPage(films.get(3).getId(), 2)));
+        assertEquals(0, filmController.findPage(films.get(4).getId(), 2).size());
+
+        assertThrows(ValidationException.class, () -> filmController.findPage(0L, 0));
+    }
+
+    @Test
+    void streamAll_shouldWriteOneFilmPerLine() throws Exception {
+        for (int i = 0; i < NdjsonWriter.PAGE_SIZE + 3; i++) {
+            Film newFilm = new Film();
+            newFilm.setName("Фильм " + i);
+            newFilm.setDescription("Описание");
+            newFilm.setReleaseDate(LocalDate.of(2000, 1, 1));
+            newFilm.setDuration(100);
+            filmController.create(newFilm);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filmController.streamAll().writeTo(out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+
+        assertEquals(NdjsonWriter.PAGE_SIZE + 3, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,"), lines[0]);
+        assertTrue(lines[lines.length - 1].contains("\"name\":\"Фильм " + (NdjsonWriter.PAGE_SIZE + 2) + "\""));
+    }
+
     @Test
     void createFilm() {
         // Создание фильма и проверка его свойств
@@ -79,6 +145,28 @@ public class FilmControllerTest {
         assertEquals(film.getDescription(), updatedFilm.getDescription());
     }
 
+    @Test
+    void updateFilm_shouldKeepUnsetFieldsAndLikesWithoutTouchingReadCopy() {
+        Film existingFilm = filmController.create(film);
+        filmController.putLike(existingFilm.getId(), 1L);
+        Film read = filmController.findFilmById(existingFilm.getId());
+        long version = read.getVersion();
+
+        Film update = new Film();
+        update.setId(existingFilm.getId());
+        update.setName("Только имя");
+        Film updatedFilm = filmController.update(update);
+
+        assertEquals("Только имя", updatedFilm.getName());
+        assertEquals(film.getDescription(), updatedFilm.getDescription());
+        assertEquals(film.getDuration(), updatedFilm.getDuration());
+        assertEquals(Set.of(1L), updatedFilm.getLikes());
+        assertTrue(updatedFilm.getVersion() > version);
+        assertEquals(film.getName(), read.getName()); //прочитанный раньше фильм не меняется вместе с версией
+        assertEquals(version, read.getVersion());
+        assertEquals(List.of(updatedFilm.getId()), popular(1L).stream().map(Film::getId).toList());
+    }
+
     @Test
     void throwValidationExceptionForInvalidDuration() {
         // Проверка фильма с некорректной продолжительностью
@@ -150,12 +238,160 @@ public class FilmControllerTest {
         popularFilm.setDuration(90);
         filmController.create(popularFilm);  // Этот фильм будет популярным
 
-        Collection<Film> popularFilms = filmController.findPopular(10L);
+        Collection<Film> popularFilms = popular(10L);
 
         assertNotNull(popularFilms);
         assertTrue(popularFilms.size() >= 1);  // Должен быть хотя бы один фильм
     }
 
+    @Test
+    void getPopularFilms_shouldOrderByLikesCount() {
+        filmController.create(film);
+        Film secondFilm = new Film();
+        secondFilm.setName("Второй фильм");
+        secondFilm.setDescription("Описание");
+        secondFilm.setReleaseDate(LocalDate.of(2001, 1, 1));
+        secondFilm.setDuration(90);
+        filmController.create(secondFilm);
+
+        // Без лайков порядок совпадает с порядком добавления
+        assertEquals(List.of(film, secondFilm), List.copyOf(popular(10L)));
+
+        filmController.putLike(secondFilm.getId(), 1L);
+        assertEquals(List.of(secondFilm, film), List.copyOf(popular(10L)));
+        assertEquals(List.of(secondFilm), List.copyOf(popular(1L)));
+
+        filmController.deleteLike(secondFilm.getId(), 1L);
+        assertEquals(List.of(film, secondFilm), List.copyOf(popular(10L)));
+    }
+
+    @Test
+    void popularResponseCache_shouldReencodeOnlyAfterChangeAndStaleness() {
+        FilmService filmService = new FilmService(filmStorage, userStorage);
+        PopularResponseCache hourly = new PopularResponseCache(filmService, objectMapper, Duration.ofHours(1));
+        PopularResponseCache immediate = new PopularResponseCache(filmService, objectMapper, Duration.ZERO);
+        filmController.create(film);
+
+        PopularResponseCache.Encoded first = hourly.get(10L, ResponseView.FULL);
+        assertSame(first, hourly.get(10L, ResponseView.FULL)); //фильмы не менялись — отдаются те же байты
+        assertSame(immediate.get(10L, ResponseView.FULL), immediate.get(10L, ResponseView.FULL));
+
+        filmController.putLike(film.getId(), 1L);
+        assertSame(first, hourly.get(10L, ResponseView.FULL)); //изменение видно только по истечении задержки
+        PopularResponseCache.Encoded liked = immediate.get(10L, ResponseView.FULL);
+        assertNotEquals(first.tag(), liked.tag());
+        assertTrue(new String(liked.json(), StandardCharsets.UTF_8).contains("\"likes\":[1]"));
+        assertNotSame(hourly.get(1000L, ResponseView.FULL), hourly.get(1000L, ResponseView.FULL)); //длинные списки не кэшируются
+
+        String summary = new String(filmController.findPopular(10L, "summary").getBody(), StandardCharsets.UTF_8);
+        assertTrue(summary.contains("\"likesCount\":1"), summary);
+        assertFalse(summary.contains("\"likes\""), summary);
+        assertThrows(ValidationException.class, () -> filmController.findPopular(10L, "short"));
+    }
+
+    @Test
+    void findLikeIds_shouldPageByUserId() {
+        filmController.create(film);
+        for (long userId = 2; userId <= 5; userId++) {
+            User user = new User();
+            user.setEmail("user" + userId + "@example.com");
+            user.setLogin("user" + userId);
+            user.setBirthday(LocalDate.of(2000, 1, 1));
+            userStorage.create(user);
+        }
+        for (long userId : new long[]{4, 1, 5, 2}) {
+            filmController.putLike(film.getId(), userId);
+        }
+
+        assertArrayEquals(new long[]{1, 2}, filmController.findLikeIds(film.getId(), 0L, 2));
+        assertArrayEquals(new long[]{4, 5}, filmController.findLikeIds(film.getId(), 2L, 2));
+        assertArrayEquals(new long[]{4, 5}, filmController.findLikeIds(film.getId(), 3L, 10));
+        assertArrayEquals(new long[0], filmController.findLikeIds(film.getId(), 5L, 10));
+        assertThrows(NotFoundException.class, () -> filmController.findLikeIds(999L, 0L, 10));
+        assertThrows(ValidationException.class, () -> filmController.findLikeIds(film.getId(), 0L, 0));
+    }
+
+    @Test
+    void findPopularByYear_shouldFollowLikesAndReleaseDateChanges() {
+        filmController.create(film);
+        Film sameYear = new Film();
+        sameYear.setName("Тот же год");
+        sameYear.setDescription("Описание");
+        sameYear.setReleaseDate(LocalDate.of(2000, 6, 1));
+        sameYear.setDuration(90);
+        filmController.create(sameYear);
+        Film otherYear = new Film();
+        otherYear.setName("Другой год");
+        otherYear.setDescription("Описание");
+        otherYear.setReleaseDate(LocalDate.of(2010, 1, 1));
+        otherYear.setDuration(90);
+        filmController.create(otherYear);
+        filmController.putLike(otherYear.getId(), 1L);
+        filmController.putLike(sameYear.getId(), 1L);
+
+        assertEquals(List.of(sameYear, film), List.copyOf(filmController.findPopularByYear(2000, 10L)));
+        assertEquals(List.of(sameYear), List.copyOf(filmController.findPopularByYear(2000, 1L)));
+        assertEquals(List.of(otherYear), List.copyOf(filmController.findPopularByYear(2010, 10L)));
+        assertTrue(filmController.findPopularByYear(1999, 10L).isEmpty());
+
+        // смена даты выпуска переносит фильм в рейтинг другого года вместе с его лайками
+        Film update = new Film();
+        update.setId(sameYear.getId());
+        update.setReleaseDate(LocalDate.of(2010, 3, 1));
+        filmController.update(update);
+        assertEquals(List.of(film), List.copyOf(filmController.findPopularByYear(2000, 10L)));
+        assertEquals(List.of(sameYear, otherYear), List.copyOf(filmController.findPopularByYear(2010, 10L)));
+
+        User second = new User();
+        second.setEmail("second@example.com");
+        second.setLogin("second");
+        second.setBirthday(LocalDate.of(2000, 1, 1));
+        userStorage.create(second);
+        filmController.putLike(otherYear.getId(), second.getId());
+        assertEquals(List.of(otherYear, sameYear), List.copyOf(filmController.findPopularByYear(2010, 10L)));
+    }
+
+    @Test
+    void findTrending_shouldCountOnlyLikesInsideWindow() {
+        User second = new User();
+        second.setEmail("second@example.com");
+        second.setLogin("second");
+        second.setBirthday(LocalDate.of(2000, 1, 1));
+        userStorage.create(second);
+        filmController.create(film);
+        Film oldHit = new Film();
+        oldHit.setName("Старый хит");
+        oldHit.setDescription("Описание");
+        oldHit.setReleaseDate(LocalDate.of(1990, 1, 1));
+        oldHit.setDuration(90);
+        filmController.create(oldHit);
+        filmController.putLike(oldHit.getId(), 1L);
+        filmController.putLike(oldHit.getId(), 2L);
+
+        long now = System.currentTimeMillis();
+        filmStorage.rollTrending(now + Duration.ofHours(25).toMillis());
+        filmController.putLike(film.getId(), 1L);
+
+        // за сутки лайки старого хита уже выпали из окна, за неделю — ещё нет
+        assertEquals(List.of(oldHit, film), List.copyOf(popular(10L)));
+        assertEquals(List.of(film), List.copyOf(filmController.findTrending("24h", 10L)));
+        assertEquals(List.of(oldHit, film), List.copyOf(filmController.findTrending("7d", 10L)));
+
+        // снятый лайк вычитается из окна
+        filmController.deleteLike(oldHit.getId(), 2L);
+        assertEquals(List.of(film, oldHit), List.copyOf(filmController.findTrending("7d", 10L)));
+        assertEquals(List.of(film), List.copyOf(filmController.findTrending("7d", 1L)));
+
+        // лайк, поставленный до начала окна, при снятии счёт окна не меняет — как по likes.created_at в db
+        filmController.putLike(oldHit.getId(), 2L);
+        filmController.deleteLike(oldHit.getId(), 1L);
+        assertEquals(List.of(film, oldHit), List.copyOf(filmController.findTrending("24h", 10L)));
+
+        filmStorage.rollTrending(now + Duration.ofDays(9).toMillis());
+        assertTrue(filmController.findTrending("7d", 10L).isEmpty());
+        assertThrows(ValidationException.class, () -> filmController.findTrending("1y", 10L));
+    }
+
     @Test
     void putLike_shouldAddLikeIfFilmExists() {
         filmController.create(film);
@@ -188,6 +424,53 @@ public class FilmControllerTest {
         assertEquals("Фильм с id = " + nonExistentFilmId + " не найден", exception.getMessage());
     }
 
+    @Test
+    void putLike_shouldNotLoseLikesUnderConcurrentLoad() throws Exception {
+        filmController.create(film);
+        for (int i = 0; i < 399; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@example.com");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(2000, 1, 1));
+            userStorage.create(user);
+        }
+
+        // Лайки одному фильму и добавление новых фильмов идут параллельно
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (long userId = 1; userId <= 400; userId++) {
+            long likeFrom = userId;
+            tasks.add(() -> {
+                filmController.putLike(film.getId(), likeFrom);
+                return null;
+            });
+            tasks.add(() -> {
+                Film newFilm = new Film();
+                newFilm.setName("Фильм " + likeFrom);
+                newFilm.setDescription("Описание");
+                newFilm.setReleaseDate(LocalDate.of(2000, 1, 1));
+                newFilm.setDuration(100);
+                return filmController.create(newFilm).getId();
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Long> createdIds = new ArrayList<>();
+        try {
+            for (Future<Long> future : executor.invokeAll(tasks)) {
+                if (future.get() != null) {
+                    createdIds.add(future.get());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(400, film.getLikes().size());
+        assertEquals(400, createdIds.stream().distinct().count());
+        assertEquals(401, filmController.findAll().size());
+        assertEquals(List.of(film), List.copyOf(popular(1L)));
+        assertEquals(401, popular(1000L).size());
+    }
+
     // Тест на удаление лайка
     @Test
     void deleteLike_shouldRemoveLikeIfFilmAndLikeExist() {
@@ -221,4 +504,66 @@ public class FilmControllerTest {
 
         assertEquals("Фильм с id = " + nonExistentFilmId + " не найден", exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void putLikes_shouldReportStatusPerItem() {
+        filmController.create(film);
+        Long userId = 1L;
+
+        List<BatchItemResult> results = filmController.putLikes(List.of(
+                new FilmLike(film.getId(), userId),
+                new FilmLike(film.getId(), userId),
+                new FilmLike(999L, userId),
+                new FilmLike(film.getId(), 999L),
+                new FilmLike(null, userId)));
+
+        assertEquals(List.of(BatchStatus.APPLIED, BatchStatus.UNCHANGED, BatchStatus.FILM_NOT_FOUND,
+                        BatchStatus.USER_NOT_FOUND, BatchStatus.INVALID),
+                results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(BatchItemResult::getIndex).toList());
+        assertEquals(Set.of(userId), film.getLikes());
+
+        assertEquals(List.of(BatchStatus.APPLIED, BatchStatus.UNCHANGED),
+                filmController.deleteLikes(List.of(new FilmLike(film.getId(), userId), new FilmLike(film.getId(), userId)))
+                        .stream().map(BatchItemResult::getStatus).toList());
+        assertTrue(film.getLikes().isEmpty());
+    }
+
+    @Test
+    void importFilms_shouldReadArrayAndNdjson() throws Exception {
+        String array = "[{\"name\":\"Первый\",\"description\":\"Описание\",\"releaseDate\":\"2000-01-01\",\"duration\":90},"
+                + "{\"name\":\"\",\"description\":\"Описание\",\"releaseDate\":\"2000-01-01\",\"duration\":90},null]";
+        ImportResult result = filmController.importFilms(new ByteArrayInputStream(array.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(3, result.getReceived());
+        assertEquals(1, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertTrue(result.isComplete());
+        assertEquals(List.of("Элемент 1: Имя указано неверно", "Элемент 2: Фильм не указан"), result.getErrors());
+
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 2500; i++) {
+            ndjson.append("{\"name\":\"Фильм ").append(i)
+                    .append("\",\"description\":\"Описание\",\"releaseDate\":\"2000-01-01\",\"duration\":90}\n");
+        }
+        ndjson.append("{\"name\":");
+        result = filmController.importFilms(new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2500, result.getImported());
+        assertFalse(result.isComplete());
+        assertEquals(2501, filmController.findAll().size());
+        assertEquals(List.of(2L, 3L), filmController.findPage(1L, 2).stream().map(Film::getId).toList());
+    }
+
+    private List<Film> popular(long count) { //ответ разбирается обратно, чтобы проверять именно закодированные байты
+        try {
+            List<Film> films = new ArrayList<>();
+            for (JsonNode node : objectMapper.readTree(filmController.findPopular(count, "full").getBody())) {
+                films.add(filmStorage.findFilmById(node.get("id").asLong()));
+            }
+            return films;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecommendationControllerTest {
+
+    private RecommendationController controller;
+    private FilmStorage filmStorage;
+    private final List<Long> films = new ArrayList<>();
+    private final List<Long> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        UserStorage userStorage = new InMemoryUserStorage();
+        controller = new RecommendationController(new FilmService(filmStorage, userStorage));
+        for (int i = 0; i < 6; i++) {
+            Film film = new Film();
+            film.setName("Фильм " + i);
+            film.setDescription("Описание");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            films.add(filmStorage.create(film).getId());
+
+            User user = new User();
+            user.setEmail("user" + i + "@example.com");
+            user.setLogin("login" + i);
+            user.setBirthday(LocalDate.of(2000, 1, 1));
+            users.add(userStorage.create(user).getId());
+        }
+    }
+
+    @Test
+    void shouldRecommendFilmsOfMostSimilarUsers() {
+        like(0, 0, 1);
+        like(1, 0, 1, 2);    // два общих лайка
+        like(2, 0, 3, 4);    // один общий лайк
+        like(3, 1, 4);       // один общий лайк
+        like(4, 5);          // общих лайков нет
+
+        // фильм 4 набирает вес двух пользователей, фильм 2 — одного, но более похожего
+        assertEquals(List.of(films.get(2), films.get(4), films.get(3)), ids(controller.getRecommendations(users.get(0), 10)));
+        assertEquals(List.of(films.get(2)), ids(controller.getRecommendations(users.get(0), 1)));
+        // уже лайкнутые фильмы не рекомендуются
+        assertFalse(ids(controller.getRecommendations(users.get(1), 10)).contains(films.get(1)));
+    }
+
+    @Test
+    void shouldReturnEmptyListWithoutLikes() {
+        like(1, 0, 1);
+        assertTrue(controller.getRecommendations(users.get(0), 10).isEmpty());
+    }
+
+    @Test
+    void shouldValidateRequest() {
+        assertThrows(NotFoundException.class, () -> controller.getRecommendations(999L, 10));
+        assertThrows(ValidationException.class, () -> controller.getRecommendations(users.get(0), 0));
+    }
+
+    private void like(int user, int... filmIndexes) {
+        for (int film : filmIndexes) {
+            filmStorage.putLike(films.get(film), users.get(user));
+        }
+    }
+
+    private List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "filmorate.popular-cache.max-staleness=0s")
+public class SummaryViewTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void summaryView_shouldReplaceIdSetsWithCounts() {
+        User user = createUser("summary-user");
+        User friend = createUser("summary-friend");
+        userService.putFriend(user.getId(), friend.getId());
+
+        String full = restTemplate.getForObject("/users/" + user.getId(), String.class);
+        assertTrue(full.contains("\"friends\":[" + friend.getId() + "]"), full);
+
+        String summary = restTemplate.getForObject("/users/" + user.getId() + "?view=summary", String.class);
+        assertTrue(summary.contains("\"friendsCount\":1"), summary);
+        assertFalse(summary.contains("\"friends\""), summary);
+
+        String friends = restTemplate.getForObject("/users/" + user.getId() + "/friends?view=summary", String.class);
+        assertTrue(friends.startsWith("[{") && friends.contains("\"friendsCount\":1"), friends);
+
+        String ids = restTemplate.getForObject("/users/" + user.getId() + "/friends/ids?limit=10", String.class);
+        assertEquals("[" + friend.getId() + "]", ids);
+    }
+
+    @Test
+    void unknownView_shouldBeRejected() {
+        User user = createUser("summary-bad");
+        ResponseEntity<String> response = restTemplate.getForEntity("/users/" + user.getId() + "?view=tiny", String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertTrue(response.getBody().contains("view"), response.getBody());
+    }
+
+    @Test
+    void viewParam_shouldBeIgnoredOnWrites() {
+        User user = new User();
+        user.setEmail("summary-post@example.com");
+        user.setLogin("summary-post");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+
+        ResponseEntity<String> response = restTemplate.postForEntity("/users?view=bogus", user, String.class);
+
+        assertTrue(response.getStatusCode().is2xxSuccessful(), response.getBody()); //сохранённая запись не отвечает ошибкой
+        assertTrue(response.getBody().contains("\"friends\""), response.getBody());
+        assertTrue(userService.findAll().stream().anyMatch(saved -> "summary-post".equals(saved.getLogin())));
+    }
+
+    private User createUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@example.com");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return userService.create(user);
+    }
+}
@@ -1,17 +1,31 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.exception.ConditionsNotMetException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchStatus;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.ImportResult;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -25,7 +39,8 @@ public class UserControllerTest {
     void setUp() {
         UserStorage userStorage = new InMemoryUserStorage();
         UserService userService = new UserService(userStorage);
-        userController = new UserController(userService);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        userController = new UserController(userService, new NdjsonWriter(objectMapper), new JsonImportReader(objectMapper));
         user = new User();
         user.setEmail("test@example.com");
         user.setLogin("Логин");
@@ -46,6 +61,23 @@ public class UserControllerTest {
         assertTrue(allUsers.contains(addedUser));
     }
 
+    @Test
+    void findPage_shouldReturnUsersAfterCursor() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User newUser = new User();
+            newUser.setEmail("user" + i + "@example.com");
+            newUser.setLogin("user" + i);
+            newUser.setBirthday(LocalDate.of(2000, 1, 1));
+            users.add(userController.create(newUser));
+        }
+
+        assertEquals(users.subList(0, 2), List.copyOf(userController.findPage(0L, 2)));
+        assertEquals(users.subList(2, 3), List.copyOf(userController.findPage(users.get(1).getId(), 2)));
+
+        assertThrows(ValidationException.class, () -> userController.findPage(0L, 5000));
+    }
+
     @Test
     void createUser() {
         User createdUser = userController.create(user);
@@ -103,6 +135,83 @@ public class UserControllerTest {
         assertEquals("Этот имейл уже использутся", exception.getMessage());
     }
 
+    @Test
+    void concurrentCreateWithSameEmail_shouldCreateOnlyOneUser() throws Exception {
+        List<Callable<Boolean>> creates = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int number = i;
+            creates.add(() -> {
+                User newUser = new User();
+                newUser.setEmail("same@example.com");
+                newUser.setLogin("user" + number);
+                newUser.setBirthday(LocalDate.of(2000, 1, 1));
+                try {
+                    userController.create(newUser);
+                    return true;
+                } catch (ValidationException e) {
+                    return false;
+                }
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        int created = 0;
+        try {
+            for (Future<Boolean> future : executor.invokeAll(creates)) {
+                created += future.get() ? 1 : 0;
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, created);
+        assertEquals(1, userController.findAll().size());
+    }
+
+    @Test
+    void updateUser_shouldKeepUnsetFieldsAndFriendsWithoutTouchingReadCopy() {
+        User existingUser = userController.create(user);
+        User friend = new User();
+        friend.setEmail("friend@example.com");
+        friend.setLogin("friend");
+        friend.setBirthday(LocalDate.of(2000, 1, 1));
+        userController.create(friend);
+        userController.putFriend(existingUser.getId(), friend.getId());
+        User read = userController.findUserById(existingUser.getId());
+
+        User update = new User();
+        update.setId(existingUser.getId());
+        update.setLogin("НовыйЛогин");
+        User updatedUser = userController.update(update);
+
+        assertEquals("НовыйЛогин", updatedUser.getLogin());
+        assertEquals("Пользователь", updatedUser.getName());
+        assertEquals("test@example.com", updatedUser.getEmail());
+        assertEquals(Set.of(friend.getId()), updatedUser.getFriends());
+        assertEquals("Логин", read.getLogin()); //прочитанный раньше пользователь не меняется
+    }
+
+    @Test
+    void updateEmail_shouldReleaseOldEmail() {
+        User existingUser = userController.create(user);
+        User emailChange = new User();
+        emailChange.setId(existingUser.getId());
+        emailChange.setEmail("new@example.com");
+        userController.update(emailChange);
+
+        assertEquals("new@example.com", userController.findUserById(existingUser.getId()).getEmail());
+
+        User secondUser = new User();
+        secondUser.setEmail("test@example.com");
+        secondUser.setLogin("второй");
+        secondUser.setBirthday(LocalDate.of(2000, 1, 1));
+        assertNotNull(userController.create(secondUser).getId());
+
+        emailChange.setEmail("test@example.com");
+        ConditionsNotMetException exception = assertThrows(ConditionsNotMetException.class, () ->
+                userController.update(emailChange));
+        assertEquals("Этот имейл уже использутся", exception.getMessage());
+    }
+
     @Test
     void throwValidationExceptionForEmptyLogin() {
         User invalidUser = new User();
@@ -261,11 +370,79 @@ public class UserControllerTest {
         userController.putFriend(user1.getId(), user3.getId());
         userController.putFriend(user2.getId(), user3.getId());
 
-        Collection<User> commonFriends = userController.getCommonFriends(user1.getId(), user2.getId());
+        Collection<User> commonFriends = userController.getCommonFriends(user1.getId(), user2.getId(), 0L, null);
 
         assertTrue(commonFriends.contains(user3));
     }
 
+    @Test
+    void concurrentCreateAndPutFriend_shouldNotLoseUpdates() throws Exception {
+        User popularUser = userController.create(user);
+
+        List<Callable<Long>> creates = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int number = i;
+            creates.add(() -> {
+                User newUser = new User();
+                newUser.setEmail("user" + number + "@example.com");
+                newUser.setLogin("user" + number);
+                newUser.setBirthday(LocalDate.of(2000, 1, 1));
+                return userController.create(newUser).getId();
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Long> ids = new ArrayList<>();
+            for (Future<Long> future : executor.invokeAll(creates)) {
+                ids.add(future.get());
+            }
+            assertEquals(500, ids.stream().distinct().count());
+
+            List<Callable<Void>> friendships = new ArrayList<>();
+            for (Long id : ids) {
+                friendships.add(() -> {
+                    userController.putFriend(popularUser.getId(), id);
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(friendships)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(501, userController.findAll().size());
+        assertEquals(500, userController.getFriends(popularUser.getId()).size());
+    }
+
+    @Test
+    void getCommonFriends_shouldReturnSortedPage() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            User newUser = new User();
+            newUser.setEmail("user" + i + "@example.com");
+            newUser.setLogin("user" + i);
+            newUser.setBirthday(LocalDate.of(2000, 1, 1));
+            users.add(userController.create(newUser));
+        }
+        User first = users.get(0);
+        User second = users.get(1);
+        // Добавляем в обратном порядке, чтобы проверить сортировку результата по id
+        for (int i = 6; i >= 2; i--) {
+            userController.putFriend(first.getId(), users.get(i).getId());
+            userController.putFriend(second.getId(), users.get(i).getId());
+        }
+        userController.putFriend(first.getId(), second.getId());
+
+        assertEquals(users.subList(2, 7), List.copyOf(userController.getCommonFriends(first.getId(), second.getId(), 0L, null)));
+        assertEquals(users.subList(3, 5), List.copyOf(userController.getCommonFriends(first.getId(), second.getId(), 1L, 2L)));
+        assertEquals(0, userController.getCommonFriends(first.getId(), second.getId(), 10L, 2L).size());
+
+        assertThrows(ValidationException.class, () ->
+                userController.getCommonFriends(first.getId(), second.getId(), -1L, null));
+    }
+
     @Test
     void throwConditionsNotMetExceptionWhenUserNotFoundForDeleteFriend() {
         User user1 = new User();
@@ -284,4 +461,79 @@ public class UserControllerTest {
 
         assertEquals("Пользователь с id = 999 не найден", exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void putFriends_shouldReportStatusPerItem() {
+        User friend = new User();
+        friend.setEmail("friend@example.com");
+        friend.setLogin("friend");
+        friend.setBirthday(LocalDate.of(1990, 1, 1));
+        userController.create(user);
+        userController.create(friend);
+
+        List<BatchItemResult> results = userController.putFriends(List.of(
+                new Friendship(user.getId(), friend.getId()),
+                new Friendship(friend.getId(), user.getId()),
+                new Friendship(user.getId(), user.getId()),
+                new Friendship(999L, friend.getId()),
+                new Friendship(user.getId(), 999L)));
+
+        assertEquals(List.of(BatchStatus.APPLIED, BatchStatus.UNCHANGED, BatchStatus.INVALID,
+                        BatchStatus.USER_NOT_FOUND, BatchStatus.FRIEND_NOT_FOUND),
+                results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(List.of(friend), List.copyOf(userController.getFriends(user.getId())));
+        assertEquals(List.of(user), List.copyOf(userController.getFriends(friend.getId())));
+    }
+
+    @Test
+    void getFriendSuggestions_shouldRankByMutualFriends() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            User other = new User();
+            other.setEmail("user" + i + "@example.com");
+            other.setLogin("user" + i);
+            other.setBirthday(LocalDate.of(1990, 1, 1));
+            ids.add(userController.create(other).getId());
+        }
+        userController.putFriend(ids.get(0), ids.get(1));
+        userController.putFriend(ids.get(0), ids.get(2));
+        userController.putFriend(ids.get(1), ids.get(3));
+        userController.putFriend(ids.get(1), ids.get(4));
+        userController.putFriend(ids.get(2), ids.get(3));
+        userController.putFriend(ids.get(2), ids.get(1));
+
+        // у пользователя 3 два общих друга, у пользователя 4 — один; друзья и сам пользователь не предлагаются
+        assertEquals(List.of(ids.get(3), ids.get(4)),
+                userController.getFriendSuggestions(ids.get(0), 10).stream().map(User::getId).toList());
+        assertEquals(List.of(ids.get(3)),
+                userController.getFriendSuggestions(ids.get(0), 1).stream().map(User::getId).toList());
+        assertTrue(userController.getFriendSuggestions(ids.get(5), 10).isEmpty());
+        assertThrows(NotFoundException.class, () -> userController.getFriendSuggestions(999L, 10));
+        assertThrows(ValidationException.class, () -> userController.getFriendSuggestions(ids.get(0), 0));
+
+        assertArrayEquals(new long[]{ids.get(3), ids.get(4)}, userController.getFriendIds(ids.get(1), ids.get(2), 10));
+        assertArrayEquals(new long[]{ids.get(0), ids.get(2)}, userController.getFriendIds(ids.get(1), 0L, 2));
+        assertThrows(ValidationException.class, () -> userController.getFriendIds(ids.get(1), -1L, 2));
+    }
+
+    @Test
+    void importUsers_shouldRejectTakenAndRepeatedEmails() throws Exception {
+        userController.create(user);
+        String ndjson = """
+                {"email":"test@example.com","login":"taken","birthday":"2000-01-01"}
+                {"email":"new@example.com","login":"new","birthday":"2000-01-01"}
+                {"email":"new@example.com","login":"repeat","birthday":"2000-01-01"}
+                {"email":"broken","login":"broken","birthday":"2000-01-01"}
+                null
+                """;
+
+        ImportResult result = userController.importUsers(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(5, result.getReceived());
+        assertEquals(1, result.getImported());
+        assertEquals(4, result.getRejected());
+        assertTrue(result.getErrors().contains("Элемент 4: Пользователь не указан"), result.getErrors().toString());
+        assertEquals(2, userController.findAll().size());
+        assertEquals("new", userController.findUserById(2L).getName());
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability
+public class MetricsTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private StorageMetrics storageMetrics;
+
+    @Test
+    void shouldExposeServiceTimersAndStorageGaugesInPrometheusFormat() {
+        User user = new User();
+        user.setEmail("metrics@example.com");
+        user.setLogin("metrics");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        userService.create(user);
+        restTemplate.getForObject("/films/popular", String.class);
+        storageMetrics.refreshFriendDegrees();
+
+        String scrape = restTemplate.getForObject("/actuator/prometheus", String.class);
+
+        assertTrue(scrape.contains("filmorate_service_seconds_count{class=\"ru.yandex.practicum.filmorate.service.UserService\""), scrape);
+        assertTrue(scrape.contains("filmorate_service_seconds_bucket"));
+        assertTrue(scrape.contains("http_server_requests_seconds_bucket"));
+        assertTrue(scrape.contains("uri=\"/films/popular\""));
+        assertTrue(scrape.contains("filmorate_films "));
+        assertTrue(scrape.contains("filmorate_likes "));
+        assertTrue(scrape.contains("filmorate_users 1.0"));
+        assertTrue(scrape.contains("filmorate_users_friends_degree{bucket=\"0\",} 1.0"));
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.SmartLifecycle;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.QueueFullException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LikeQueueTest {
+
+    private InMemoryFilmStorage filmStorage;
+    private FilmService filmService;
+    private MeterRegistry registry;
+    private long filmId;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        filmService = new FilmService(filmStorage, userStorage);
+        registry = new SimpleMeterRegistry();
+        Film film = new Film();
+        film.setName("Премьера");
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        filmId = filmStorage.create(film).getId();
+        for (int i = 0; i < 5; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@example.com");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(2000, 1, 1));
+            userStorage.create(user);
+        }
+    }
+
+    @Test
+    void shouldRejectWhenFullAndApplyAcceptedLikesOnStop() {
+        LikeQueue queue = new LikeQueue(filmService, filmStorage, registry, 4, 100);
+        for (long userId = 1; userId <= 4; userId++) {
+            queue.putLike(filmId, userId);
+        }
+        assertThrows(QueueFullException.class, () -> queue.putLike(filmId, 5L));
+        assertThrows(NotFoundException.class, () -> queue.putLike(999L, 1L));
+        assertEquals(4, registry.get("filmorate.likes.queue.depth").gauge().value());
+        assertEquals(1, registry.get("filmorate.likes.queue.rejected").counter().count());
+        assertTrue(filmStorage.findFilmById(filmId).getLikes().isEmpty()); //пока лайки только приняты
+
+        queue.start();
+        queue.stop(); //остановка дожидается применения всей очереди
+
+        assertEquals(Set.of(1L, 2L, 3L, 4L), filmStorage.findFilmById(filmId).getLikes());
+        assertEquals(0, registry.get("filmorate.likes.queue.depth").gauge().value());
+        assertEquals(1, registry.get("filmorate.likes.queue.lag").timer().count());
+    }
+
+    @Test
+    void shouldRejectLikesAfterStop() {
+        LikeQueue queue = new LikeQueue(filmService, filmStorage, registry, 100, 100);
+        queue.start();
+        queue.putLike(filmId, 1L);
+        queue.stop();
+
+        assertThrows(QueueFullException.class, () -> queue.putLike(filmId, 2L)); //принятый лайк потерялся бы
+        assertThrows(QueueFullException.class, () -> queue.deleteLike(filmId, 1L));
+        assertEquals(Set.of(1L), filmStorage.findFilmById(filmId).getLikes());
+        assertEquals(0, registry.get("filmorate.likes.queue.depth").gauge().value());
+        assertTrue(queue.getPhase() < SmartLifecycle.DEFAULT_PHASE - 2048); //останавливается после веб-сервера
+    }
+
+    @Test
+    void shouldKeepLastActionOfEachPair() {
+        LikeQueue queue = new LikeQueue(filmService, filmStorage, registry, 100, 100);
+        filmStorage.putLike(filmId, 3L);
+
+        queue.apply(List.of(
+                pending(1, true), pending(1, false), //лайк поставлен и снят — ничего не меняется
+                pending(2, false), pending(2, true), pending(2, true),
+                pending(3, true), pending(3, false)));
+
+        assertEquals(Set.of(2L), filmStorage.findFilmById(filmId).getLikes());
+        assertEquals(List.of(filmId), filmStorage.findPopular(1L).stream().map(Film::getId).toList());
+        assertEquals(4, registry.get("filmorate.likes.queue.coalesced").counter().count());
+    }
+
+    private LikeQueue.Pending pending(long userId, boolean liked) {
+        return new LikeQueue.Pending(new FilmLike(filmId, userId), liked, System.nanoTime());
+    }
+}
@@ -0,0 +1,196 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.exception.ConditionsNotMetException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchStatus;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.JdbcFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.JdbcUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:filmorate;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("db")
+public class JdbcStorageTest {
+
+    @Autowired
+    private FilmStorage filmStorage;
+    @Autowired
+    private UserStorage userStorage;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void shouldUseJdbcStoragesInDbProfile() {
+        assertInstanceOf(JdbcFilmStorage.class, filmStorage);
+        assertInstanceOf(JdbcUserStorage.class, userStorage);
+    }
+
+    @Test
+    void shouldPersistFilmsAndLikes() {
+        User user = userService.create(newUser());
+        long version = filmService.currentVersion();
+        Film film = filmService.create(newFilm("Первый"));
+        Film secondFilm = filmService.create(newFilm("Второй"));
+        assertTrue(filmService.currentVersion() > version);
+
+        version = filmService.currentVersion();
+        long filmVersion = filmService.findFilmById(secondFilm.getId()).getVersion();
+        filmService.putLike(secondFilm.getId(), user.getId());
+        assertTrue(filmService.currentVersion() > version);
+        assertNotEquals(filmVersion, filmService.findFilmById(secondFilm.getId()).getVersion());
+        assertThrows(NotFoundException.class, () -> filmService.putLike(secondFilm.getId(), user.getId()));
+
+        Film loaded = filmService.findFilmById(secondFilm.getId());
+        assertEquals("Второй", loaded.getName());
+        assertEquals(Set.of(user.getId()), loaded.getLikes());
+        assertArrayEquals(new long[]{user.getId()}, filmService.findLikeIds(secondFilm.getId(), 0L, 10));
+        assertArrayEquals(new long[0], filmService.findLikeIds(secondFilm.getId(), user.getId(), 10));
+        assertEquals(secondFilm.getId(), filmService.findPopular(1L).iterator().next().getId());
+
+        filmService.deleteLike(secondFilm.getId(), user.getId());
+        assertTrue(filmService.findFilmById(secondFilm.getId()).getLikes().isEmpty());
+
+        Film update = new Film();
+        update.setId(film.getId());
+        update.setName("Обновлённый");
+        filmService.update(update);
+        assertEquals("Обновлённый", filmService.findFilmById(film.getId()).getName());
+        assertEquals(secondFilm.getId(), filmService.findPage(film.getId(), 1).iterator().next().getId());
+    }
+
+    @Test
+    void shouldPersistFriendsAndKeepEmailsUnique() {
+        User user = userService.create(newUser());
+        User friend = userService.create(newUser());
+        User common = userService.create(newUser());
+
+        userService.putFriend(user.getId(), common.getId());
+        userService.putFriend(friend.getId(), common.getId());
+
+        assertEquals(List.of(common.getId()), userService.getCommonFriends(user.getId(), friend.getId(), 0L, null)
+                .stream().map(User::getId).toList());
+        assertEquals(Set.of(user.getId(), friend.getId()), userService.findUserById(common.getId()).getFriends());
+        assertEquals(List.of(friend.getId()), userService.getFriendSuggestions(user.getId(), 10)
+                .stream().map(User::getId).toList());
+        assertArrayEquals(new long[]{friend.getId()}, userService.getFriendIds(common.getId(), user.getId(), 10));
+
+        userService.deleteFriend(user.getId(), common.getId());
+        assertTrue(userService.getFriends(user.getId()).isEmpty());
+
+        User duplicate = newUser();
+        duplicate.setEmail(user.getEmail());
+        assertThrows(ValidationException.class, () -> userService.create(duplicate));
+
+        User emailChange = new User();
+        emailChange.setId(friend.getId());
+        emailChange.setEmail(user.getEmail());
+        assertThrows(ConditionsNotMetException.class, () -> userService.update(emailChange));
+
+        emailChange.setEmail("changed-" + friend.getEmail());
+        userService.update(emailChange);
+        assertEquals(emailChange.getEmail(), userService.findUserById(friend.getId()).getEmail());
+    }
+
+    @Test
+    void shouldApplyBatchesInOnePass() {
+        User user = userService.create(newUser());
+        User friend = userService.create(newUser());
+        Film film = filmService.create(newFilm("Пакетный"));
+
+        assertEquals(List.of(BatchStatus.APPLIED, BatchStatus.APPLIED, BatchStatus.UNCHANGED, BatchStatus.FILM_NOT_FOUND),
+                filmService.putLikes(List.of(new FilmLike(film.getId(), user.getId()),
+                                new FilmLike(film.getId(), friend.getId()),
+                                new FilmLike(film.getId(), user.getId()),
+                                new FilmLike(Long.MAX_VALUE, user.getId())))
+                        .stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(Set.of(user.getId(), friend.getId()), filmService.findFilmById(film.getId()).getLikes());
+        assertArrayEquals(new long[]{film.getId()}, filmStorage.findLikedFilmIds(friend.getId()));
+
+        filmService.deleteLikes(List.of(new FilmLike(film.getId(), friend.getId())));
+        assertEquals(Set.of(user.getId()), filmService.findFilmById(film.getId()).getLikes());
+        assertTrue(filmService.findPopularByYear(film.getReleaseDate().getYear(), 1000L).stream()
+                .map(Film::getId).toList().contains(film.getId()));
+        assertTrue(filmService.findTrending("24h", 1000L).stream().map(Film::getId).toList().contains(film.getId()));
+
+        assertEquals(List.of(BatchStatus.APPLIED, BatchStatus.UNCHANGED),
+                userService.putFriends(List.of(new Friendship(user.getId(), friend.getId()),
+                                new Friendship(friend.getId(), user.getId())))
+                        .stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(Set.of(user.getId()), userService.findUserById(friend.getId()).getFriends());
+    }
+
+    @Test
+    void shouldImportInBatchesWithGeneratedIds() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            films.add(newFilm("Импорт " + i));
+        }
+        List<User> users = List.of(newUser(), newUser());
+
+        ImportResult filmResult = filmService.importFilms(films.iterator());
+        ImportResult userResult = userService.importUsers(users.iterator());
+
+        assertEquals(1500, filmResult.getImported());
+        assertEquals("Импорт 1499", filmService.findFilmById(films.get(1499).getId()).getName());
+        assertEquals(2, userResult.getImported());
+        assertEquals(users.get(1).getEmail(), userService.findUserById(users.get(1).getId()).getEmail());
+        assertEquals(1, userService.importUsers(List.of(users.get(0)).iterator()).getRejected());
+    }
+
+    @Test
+    void shouldSaveRestOfBatchWhenEmailTakenConcurrently() {
+        User taken = userService.create(newUser());
+        User first = newUser();
+        User duplicate = newUser();
+        duplicate.setEmail(taken.getEmail()); //как будто email заняли между проверкой и вставкой
+        User last = newUser();
+        long before = userStorage.count();
+
+        List<User> created = userStorage.createAll(List.of(first, duplicate, last));
+
+        assertEquals(List.of(first, last), created);
+        assertEquals(before + 2, userStorage.count()); //откатанный пакет не оставил строк
+        assertEquals(last.getEmail(), userService.findUserById(last.getId()).getEmail());
+        assertEquals(taken.getId(), userService.findUserById(taken.getId()).getId());
+    }
+
+    private Film newFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private User newUser() {
+        User user = new User();
+        user.setEmail(UUID.randomUUID() + "@example.com");
+        user.setLogin("login");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedStorageTest {
+
+    @Test
+    void popularFilms_shouldBeMergedAcrossPartitions() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(4);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(storage.create(newFilm("Фильм " + i)).getId());
+        }
+        for (int i = 0; i < ids.size(); i++) { //у i-го фильма i лайков, фильмы лежат в разных частях
+            for (long user = 1; user <= i; user++) {
+                storage.putLike(ids.get(i), user);
+            }
+        }
+        storage.deleteLike(ids.get(19), 1L); //сравнялся с 18-м, выше меньший id
+
+        List<Long> popular = storage.findPopular(5L).stream().map(Film::getId).toList();
+        assertEquals(List.of(ids.get(18), ids.get(19), ids.get(17), ids.get(16), ids.get(15)), popular);
+        assertEquals(ids.size(), storage.findPopular(100L).size());
+        assertEquals(ids.size(), storage.findAll().size());
+        assertEquals(ids.size(), storage.count());
+    }
+
+    @Test
+    void users_shouldKeepEmailsUniqueAcrossPartitions() {
+        InMemoryUserStorage storage = new InMemoryUserStorage(4);
+        User first = storage.create(newUser("first@example.com"));
+        User second = storage.create(newUser("second@example.com"));
+        storage.putFriend(first.getId(), second.getId());
+
+        assertTrue(storage.checkEmail("second@example.com"));
+        assertFalse(storage.updateEmail(first.getId(), "second@example.com"));
+        assertArrayEquals(new long[]{second.getId()}, storage.findFriendIds(first.getId()));
+        assertEquals(2, storage.findAll().size());
+        assertEquals(List.of(second.getId()), storage.findPage(first.getId(), 10).stream().map(User::getId).toList());
+    }
+
+    @Test
+    void users_shouldFreeEmailWhenJournalFails() {
+        InMemoryUserStorage storage = new InMemoryUserStorage(4);
+        storage.setJournal(new StorageJournal() {
+            @Override
+            public long userCreated(User user) {
+                throw new UncheckedIOException(new IOException("диск недоступен"));
+            }
+        });
+        assertThrows(UncheckedIOException.class, () -> storage.create(newUser("first@example.com")));
+        assertFalse(storage.checkEmail("first@example.com"));
+
+        storage.setJournal(StorageJournal.NOOP);
+        User first = storage.create(newUser("first@example.com"));
+        assertThrows(ValidationException.class, () -> storage.create(newUser("first@example.com")));
+        User second = storage.create(newUser("second@example.com"));
+
+        assertTrue(storage.checkEmail("first@example.com"));
+        assertEquals(first.getId() + 1, second.getId()); //отказ по дублю не тратит id
+        assertEquals(2, storage.findAll().size());
+    }
+
+    @Test
+    void lockStripes_shouldRoundToPowerOfTwo() {
+        assertEquals(1, new LockStripes(1).size());
+        assertEquals(4, new LockStripes(3).size());
+        assertEquals(64, new LockStripes(64).size());
+    }
+
+    private Film newFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private User newUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin("login");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+}
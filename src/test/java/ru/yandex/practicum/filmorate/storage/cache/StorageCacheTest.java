@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "filmorate.storage.cache.enabled=true")
+public class StorageCacheTest {
+
+    @Autowired
+    private FilmStorage filmStorage;
+    @Autowired
+    private UserStorage userStorage;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void shouldWrapStoragesAndExposeMetrics() {
+        assertInstanceOf(CachingFilmStorage.class, filmStorage);
+        assertInstanceOf(CachingUserStorage.class, userStorage);
+
+        User user = userService.create(newUser("cache1@example.com"));
+        User friend = userService.create(newUser("cache2@example.com"));
+        userService.putFriend(user.getId(), friend.getId());
+
+        double hitsBefore = hits();
+        userService.getFriends(user.getId());
+        userService.getFriends(user.getId());
+        assertTrue(hits() > hitsBefore, "Повторное чтение друзей должно попадать в кэш");
+
+        CachingUserStorage caching = (CachingUserStorage) userStorage;
+        assertNotNull(caching.getCache().getIfPresent(friend.getId()));
+        userService.deleteFriend(user.getId(), friend.getId());
+        assertNull(caching.getCache().getIfPresent(friend.getId()), "Изменение дружбы должно сбрасывать запись");
+        assertTrue(userService.getFriends(user.getId()).isEmpty());
+
+        assertNotNull(meterRegistry.find("cache.evictions").tag("cache", "users").functionCounter());
+    }
+
+    private double hits() {
+        return meterRegistry.get("cache.gets").tag("cache", "users").tag("result", "hit").functionCounter().count();
+    }
+
+    private User newUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin("login");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+}
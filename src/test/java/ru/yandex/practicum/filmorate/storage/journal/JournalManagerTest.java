@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournalManagerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldRestoreStoragesFromJournal() throws Exception {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        JournalManager journal = open(films, users, FsyncPolicy.ALWAYS);
+
+        User user = users.create(newUser("wal1@example.com"));
+        User friend = users.create(newUser("wal2@example.com"));
+        users.putFriends(List.of(new Friendship(user.getId(), friend.getId())));
+        assertTrue(users.updateEmail(friend.getId(), "wal3@example.com"));
+        Film film = films.create(newFilm("Первый"));
+        Film second = films.create(newFilm("Второй"));
+        films.putLikes(List.of(new FilmLike(second.getId(), user.getId()), new FilmLike(second.getId(), friend.getId())));
+        films.putLike(film.getId(), user.getId());
+        films.deleteLike(film.getId(), user.getId());
+        Film update = newFilm("Обновлённый");
+        update.setId(film.getId());
+        films.update(update);
+        journal.close();
+
+        InMemoryFilmStorage restoredFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage restoredUsers = new InMemoryUserStorage();
+        open(restoredFilms, restoredUsers, FsyncPolicy.ALWAYS).close();
+
+        assertEquals("Обновлённый", restoredFilms.findFilmById(film.getId()).getName());
+        assertTrue(restoredFilms.findFilmById(film.getId()).getLikes().isEmpty());
+        assertEquals(Set.of(user.getId(), friend.getId()), restoredFilms.findFilmById(second.getId()).getLikes());
+        assertEquals(List.of(second.getId(), film.getId()),
+                restoredFilms.findPopular(2L).stream().map(Film::getId).toList());
+        assertEquals(2, restoredFilms.countLikes());
+        assertEquals(Set.of(friend.getId()), restoredUsers.findUserById(user.getId()).getFriends());
+        assertEquals(Set.of(user.getId()), restoredUsers.findUserById(friend.getId()).getFriends());
+        assertTrue(restoredUsers.checkEmail("wal3@example.com"));
+        assertFalse(restoredUsers.checkEmail("wal2@example.com"));
+        assertEquals(friend.getId() + 1, restoredUsers.create(newUser("wal4@example.com")).getId());
+        assertEquals(second.getId() + 1, restoredFilms.create(newFilm("Третий")).getId());
+    }
+
+    @Test
+    void shouldRecoverFromSnapshotAndDropTornTail() throws Exception {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        JournalManager journal = open(films, users, FsyncPolicy.INTERVAL);
+
+        User user = users.create(newUser("snap1@example.com"));
+        User friend = users.create(newUser("snap2@example.com"));
+        Film film = films.create(newFilm("До снимка"));
+        films.putLike(film.getId(), user.getId());
+        journal.snapshot();
+
+        // изменения после снимка уже продублированы в нём частично или вообще не попали в него
+        films.putLike(film.getId(), friend.getId());
+        films.deleteLike(film.getId(), user.getId());
+        users.putFriend(user.getId(), friend.getId());
+        Film after = films.create(newFilm("После снимка"));
+        journal.close();
+
+        List<Long> segments = JournalFiles.segments(directory);
+        assertEquals(1, segments.size(), "Сегменты до снимка должны быть удалены");
+        assertEquals(List.of(segments.get(0)), JournalFiles.snapshots(directory));
+        Path last = JournalFiles.segment(directory, segments.get(0));
+        long size = Files.size(last);
+        Files.write(last, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        InMemoryFilmStorage restoredFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage restoredUsers = new InMemoryUserStorage();
+        open(restoredFilms, restoredUsers, FsyncPolicy.INTERVAL).close();
+
+        assertEquals(size, Files.size(last), "Недописанный хвост должен быть обрезан");
+        assertEquals(Set.of(friend.getId()), restoredFilms.findFilmById(film.getId()).getLikes());
+        assertEquals("После снимка", restoredFilms.findFilmById(after.getId()).getName());
+        assertEquals(Set.of(user.getId()), restoredUsers.findUserById(friend.getId()).getFriends());
+        assertEquals(2, restoredUsers.count());
+    }
+
+    @Test
+    void shouldRefuseToStartWhenSegmentsBeforeBrokenSnapshotAreGone() throws Exception {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        JournalManager journal = open(films, users, FsyncPolicy.ALWAYS);
+        films.create(newFilm("До снимка"));
+        journal.snapshot(); //сегменты до снимка удалены
+        films.create(newFilm("После снимка"));
+        journal.close();
+
+        Path snapshot = JournalFiles.snapshot(directory, JournalFiles.snapshots(directory).get(0));
+        Files.write(snapshot, new byte[]{1, 2, 3});
+
+        assertThrows(IllegalStateException.class,
+                () -> open(new InMemoryFilmStorage(), new InMemoryUserStorage(), FsyncPolicy.ALWAYS));
+    }
+
+    private JournalManager open(InMemoryFilmStorage films, InMemoryUserStorage users, FsyncPolicy policy)
+            throws Exception {
+        JournalManager journal = new JournalManager(films, users, directory, policy, Duration.ofMillis(10));
+        journal.start();
+        return journal;
+    }
+
+    private Film newFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private User newUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin("login");
+        user.setName("name");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+}
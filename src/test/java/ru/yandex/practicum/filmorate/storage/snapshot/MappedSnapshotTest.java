@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.storage.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldServeLookupsBeforeLoading() throws IOException {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        User user = users.create(newUser("snap1@example.com"));
+        User friend = users.create(newUser("snap2@example.com"));
+        users.putFriend(user.getId(), friend.getId());
+        Film film = films.create(newFilm("Первый", null));
+        Film second = films.create(newFilm("Второй", "Описание"));
+        films.putLike(second.getId(), user.getId());
+        Path file = directory.resolve("snapshot.bin");
+        SnapshotWriter.write(file, films.findAll(), users.findAll());
+
+        InMemoryFilmStorage restoredFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage restoredUsers = new InMemoryUserStorage();
+        MappedSnapshot snapshot = MappedSnapshot.open(file);
+        restoredFilms.attachSnapshot(snapshot);
+        restoredUsers.attachSnapshot(snapshot);
+
+        // до загрузки в кучу данные читаются из отображённого файла
+        assertEquals(2, restoredFilms.count());
+        assertEquals(1, restoredFilms.countLikes());
+        Film loaded = restoredFilms.findFilmById(second.getId());
+        assertEquals("Второй", loaded.getName());
+        assertEquals("Описание", loaded.getDescription());
+        assertEquals(LocalDate.of(2000, 1, 1), loaded.getReleaseDate());
+        assertEquals(Set.of(user.getId()), loaded.getLikes());
+        assertNull(restoredFilms.findFilmById(film.getId()).getDescription());
+        assertNull(restoredFilms.findFilmById(99L));
+        assertEquals(Set.of(user.getId()), restoredUsers.findUserById(friend.getId()).getFriends());
+
+        assertTrue(restoredUsers.checkEmail("snap1@example.com"));
+        assertFalse(restoredUsers.checkEmail("snap3@example.com"));
+        assertThrows(ValidationException.class, () -> restoredUsers.create(newUser("snap1@example.com")));
+        assertFalse(restoredUsers.updateEmail(friend.getId(), "snap1@example.com"));
+        assertTrue(restoredUsers.updateEmail(friend.getId(), "snap3@example.com"));
+        assertFalse(restoredUsers.checkEmail("snap2@example.com"));
+        assertEquals(friend.getId() + 1, restoredUsers.create(newUser("snap2@example.com")).getId());
+
+        restoredFilms.putLike(film.getId(), user.getId());
+        restoredFilms.putLike(film.getId(), friend.getId());
+        assertEquals(3, restoredFilms.countLikes());
+
+        // рейтинг учитывает и лайки из снимка, и поставленные до окончания загрузки
+        assertEquals(List.of(film.getId(), second.getId()),
+                restoredFilms.findPopular(2L).stream().map(Film::getId).toList());
+        restoredUsers.loadSnapshot();
+        assertEquals(3, restoredUsers.count());
+        assertEquals(Set.of("snap1@example.com", "snap3@example.com", "snap2@example.com"),
+                Set.copyOf(restoredUsers.findAll().stream().map(User::getEmail).toList()));
+        assertEquals(second.getId() + 1, restoredFilms.create(newFilm("Третий", null)).getId());
+    }
+
+    @Test
+    void shouldRejectTruncatedSnapshot() throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        Film film = newFilm("Фильм", null);
+        film.setId(1L);
+        SnapshotWriter.write(file, List.of(film), List.of());
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertThrows(IOException.class, () -> MappedSnapshot.open(file));
+    }
+
+    private Film newFilm(String name, String description) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(description);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private User newUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin("login");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongHashSetTest {
+
+    @Test
+    void shouldBehaveLikeHashSet() {
+        // Случайные добавления и удаления сравниваются с эталонным HashSet, включая 0 и коллизии
+        Random random = new Random(42);
+        Set<Long> expected = new HashSet<>();
+        LongHashSet actual = new LongHashSet();
+        for (int i = 0; i < 200_000; i++) {
+            long value = random.nextInt(5_000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), actual.add(value));
+            } else {
+                assertEquals(expected.remove(value), actual.remove(value));
+            }
+        }
+        assertEquals(expected.size(), actual.size());
+        for (long value = 0; value < 5_000; value++) {
+            assertEquals(expected.contains(value), actual.contains(value));
+        }
+        assertEquals(expected, actual);
+        long[] sorted = actual.sortedArray();
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).sorted().toArray(), sorted);
+        assertSame(sorted, actual.sortedArray());
+        actual.add(10_000L);
+        assertEquals(10_000L, actual.sortedArray()[sorted.length]);
+        assertArrayEquals(Arrays.copyOfRange(sorted, 10, 15), actual.sortedPage(sorted[9], 5));
+        assertArrayEquals(new long[]{10_000L}, actual.sortedPage(sorted[sorted.length - 1], 5));
+        assertArrayEquals(new long[0], actual.sortedPage(10_000L, 5));
+    }
+
+    @Test
+    void shouldKeepJsonShape() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        Film film = new Film();
+        film.getLikes().add(7L);
+
+        String json = mapper.writeValueAsString(film);
+        assertTrue(json.contains("\"likes\":[7]"), json);
+
+        Film parsed = mapper.readValue("{\"name\":\"Фильм\",\"likes\":[1,2,3]}", Film.class);
+        assertEquals(Set.of(1L, 2L, 3L), parsed.getLikes());
+    }
+
+    @Test
+    void shouldTakeLessMemoryThanBoxedHashSet() {
+        // Замер занимаемой памяти до (HashSet<Long>) и после (LongHashSet) на 100 тысячах id
+        Set<Long> boxed = new HashSet<>();
+        LongHashSet primitive = new LongHashSet();
+        for (long id = 1; id <= 100_000; id++) {
+            boxed.add(id);
+            primitive.add(id);
+        }
+
+        long boxedBytes = GraphLayout.parseInstance(boxed).totalSize();
+        long primitiveBytes = GraphLayout.parseInstance(primitive).totalSize();
+
+        assertTrue(primitiveBytes * 2 < boxedBytes, () -> "LongHashSet: " + primitiveBytes + " байт, HashSet<Long>: " + boxedBytes);
+    }
+}
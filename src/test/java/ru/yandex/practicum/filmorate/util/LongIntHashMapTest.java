@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongIntHashMapTest {
+
+    @Test
+    void shouldCountLikeHashMap() {
+        // Случайные прибавления в двух частях сравниваются с эталонным HashMap, включая ключ 0, затем части сливаются
+        Random random = new Random(42);
+        Map<Long, Integer> expected = new HashMap<>();
+        LongIntHashMap first = new LongIntHashMap();
+        LongIntHashMap second = new LongIntHashMap();
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(5_000);
+            int delta = random.nextInt(10);
+            expected.merge(key, delta, Integer::sum);
+            (random.nextBoolean() ? first : second).add(key, delta);
+        }
+        first.merge(second);
+
+        assertEquals(expected.size(), first.size());
+        Map<Long, Integer> actual = new HashMap<>();
+        first.forEach(actual::put);
+        assertEquals(expected, actual);
+        assertEquals(expected.get(0L), first.get(0));
+        assertEquals(0, first.get(10_000));
+
+        long[] top = expected.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(100)
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+        assertArrayEquals(top, first.topKeys(100));
+        assertEquals(expected.size(), first.topKeys(10_000).length);
+    }
+}